@@ -0,0 +1,131 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sightings per year, kept as running totals from the first year so that the number of sightings
+ * in any range of years is one subtraction, however long the range is. Years missing from the
+ * data count as having no sightings.
+ */
+public final class SightingsByYear {
+  private final int firstYear;
+  private final int lastYear;
+
+  // totals[i] is the number of sightings in the i years before firstYear + i.
+  private final long[] totals;
+
+  private SightingsByYear(int firstYear, int lastYear, long[] totals) {
+    this.firstYear = firstYear;
+    this.lastYear = lastYear;
+    this.totals = totals;
+  }
+
+  /** Builds the totals for {@code sightings[i]} sightings in {@code years[i]}. */
+  public static SightingsByYear of(int[] years, int[] sightings) {
+    if (years.length == 0) {
+      return new SightingsByYear(0, -1, new long[1]);
+    }
+
+    int firstYear = Integer.MAX_VALUE;
+    int lastYear = Integer.MIN_VALUE;
+    for (int year : years) {
+      firstYear = Math.min(firstYear, year);
+      lastYear = Math.max(lastYear, year);
+    }
+
+    long[] totals = new long[lastYear - firstYear + 2];
+    for (int i = 0; i < years.length; i++) {
+      totals[years[i] - firstYear + 1] += sightings[i];
+    }
+    for (int i = 1; i < totals.length; i++) {
+      totals[i] += totals[i - 1];
+    }
+    return new SightingsByYear(firstYear, lastYear, totals);
+  }
+
+  /** Returns whether there are no years of data at all. */
+  public boolean isEmpty() {
+    return firstYear > lastYear;
+  }
+
+  public int getFirstYear() {
+    return firstYear;
+  }
+
+  public int getLastYear() {
+    return lastYear;
+  }
+
+  /** Returns the number of sightings from year {@code from} through year {@code to}. */
+  public long sum(int from, int to) {
+    from = Math.max(from, firstYear);
+    to = Math.min(to, lastYear);
+    if (from > to) {
+      return 0;
+    }
+    return totals[to - firstYear + 1] - totals[from - firstYear];
+  }
+
+  /**
+   * Returns the average number of sightings per year from year {@code from} through year
+   * {@code to}, or 0 if none of those years are in the data. Like {@link #movingAverage}, only
+   * years there is data for are averaged over.
+   */
+  public double average(int from, int to) {
+    from = Math.max(from, firstYear);
+    to = Math.min(to, lastYear);
+    if (from > to) {
+      return 0;
+    }
+    return (double) sum(from, to) / (to - from + 1);
+  }
+
+  /**
+   * Returns the number of sightings in each bucket of {@code size} years from {@code from} through
+   * {@code to}, keyed by the bucket's first year. Buckets line up with multiples of {@code size},
+   * so a size of 10 gives decades, and the first and last buckets only count the years in range.
+   * Like {@link #movingAverage}, only years there is data for are bucketed, so there are never
+   * more buckets than years of data.
+   */
+  public Map<Integer, Long> buckets(int from, int to, int size) {
+    from = Math.max(from, firstYear);
+    to = Math.min(to, lastYear);
+    Map<Integer, Long> buckets = new LinkedHashMap<>();
+    // Stepping in longs so that a huge size can't wrap past the last year and start over.
+    for (long start = Math.floorDiv(from, size) * (long) size; start <= to; start += size) {
+      int first = (int) Math.max(start, from);
+      int last = (int) Math.min(start + size - 1, to);
+      buckets.put((int) start, sum(first, last));
+    }
+    return buckets;
+  }
+
+  /**
+   * Returns the average number of sightings per year over the {@code window} years up to and
+   * including each year from {@code from} through {@code to}. Windows that reach back past the
+   * first year only average the years there is data for.
+   */
+  public Map<Integer, Double> movingAverage(int from, int to, int window) {
+    Map<Integer, Double> averages = new LinkedHashMap<>();
+    for (int year = Math.max(from, firstYear); year <= Math.min(to, lastYear); year++) {
+      int windowStart = Math.max(year - window + 1, firstYear);
+      averages.put(year, (double) sum(windowStart, year) / (year - windowStart + 1));
+    }
+    return averages;
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.CsvColumns;
+import com.google.sps.data.SightingsByYear;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns totals over a range of years as a JSON object, e.g.
+ * {"from": 1990, "to": 1999, "sum": 516, "average": 51.6}. The range comes from the from and
+ * to query parameters and defaults to every year in the data; the average is only over the years
+ * of the range that are in the data. Adding bucket=10 also splits the range into decades, and
+ * window=5 adds a five-year moving average for each year.
+ */
+@WebServlet("/bigfoot-aggregate")
+public class BigfootAggregateServlet extends HttpServlet {
+
+  private SightingsByYear sightingsByYear;
+
+  @Override
+  public void init() throws ServletException {
+    CsvColumns columns;
+    try {
+      columns = CsvColumns.load(getServletContext(), "/WEB-INF/bigfoot-sightings-by-year.csv",
+          CsvColumns.Type.INT, CsvColumns.Type.INT);
+    } catch (IOException e) {
+      throw new ServletException("Could not load the bigfoot sightings", e);
+    }
+
+    sightingsByYear = SightingsByYear.of(columns.getInts(0), columns.getInts(1));
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Aggregate aggregate;
+    try {
+      int from = getParameter(request, "from", sightingsByYear.getFirstYear());
+      int to = getParameter(request, "to", sightingsByYear.getLastYear());
+      int bucket = getParameter(request, "bucket", 0);
+      int window = getParameter(request, "window", 0);
+      // Without any data a defaulted end of the range makes it empty, which isn't the caller's
+      // mistake.
+      boolean emptyDefault = sightingsByYear.isEmpty()
+          && (request.getParameter("from") == null || request.getParameter("to") == null);
+      if ((from > to && !emptyDefault) || bucket < 0 || window < 0) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+            "from must not be after to, and bucket and window must not be negative");
+        return;
+      }
+
+      aggregate = emptyDefault
+          ? new Aggregate()
+          : new Aggregate(
+              from, to, sightingsByYear.sum(from, to), sightingsByYear.average(from, to));
+      if (bucket > 0) {
+        aggregate.buckets = sightingsByYear.buckets(from, to, bucket);
+      }
+      if (window > 0) {
+        aggregate.movingAverage = sightingsByYear.movingAverage(from, to, window);
+      }
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    response.setContentType("application/json");
+    Gson gson = new Gson();
+    String json = gson.toJson(aggregate);
+    response.getWriter().println(json);
+  }
+
+  /**
+   * @return the request parameter as a whole number, or the default value if it was not specified
+   */
+  private int getParameter(HttpServletRequest request, String name, int defaultValue) {
+    String value = request.getParameter(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Integer.parseInt(value);
+  }
+
+  /**
+   * The JSON sent back. Gson leaves out the fields that weren't asked for, and the range when
+   * there is no data to make one from.
+   */
+  private static class Aggregate {
+    private final Integer from;
+    private final Integer to;
+    private final long sum;
+    private final double average;
+    private Map<Integer, Long> buckets;
+    private Map<Integer, Double> movingAverage;
+
+    /** An aggregate over no years at all. */
+    Aggregate() {
+      this.from = null;
+      this.to = null;
+      this.sum = 0;
+      this.average = 0;
+    }
+
+    Aggregate(int from, int to, long sum, double average) {
+      this.from = from;
+      this.to = to;
+      this.sum = sum;
+      this.average = average;
+    }
+  }
+}
@@ -14,10 +14,11 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.CsvColumns;
 import com.google.gson.Gson;
 import java.io.IOException;
 import java.util.LinkedHashMap;
-import java.util.Scanner;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -27,29 +28,32 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/bigfoot-data")
 public class BigfootDataServlet extends HttpServlet {
 
-  private LinkedHashMap<Integer, Integer> bigfootSightings = new LinkedHashMap<>();
+  private EncodedResponse bigfootJson;
 
   @Override
-  public void init() {
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream(
-        "/WEB-INF/bigfoot-sightings-by-year.csv"));
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
-
-      Integer year = Integer.valueOf(cells[0]);
-      Integer sightings = Integer.valueOf(cells[1]);
+  public void init() throws ServletException {
+    CsvColumns columns;
+    try {
+      columns = CsvColumns.load(getServletContext(), "/WEB-INF/bigfoot-sightings-by-year.csv",
+          CsvColumns.Type.INT, CsvColumns.Type.INT);
+    } catch (IOException e) {
+      throw new ServletException("Could not load the bigfoot sightings", e);
+    }
 
-      bigfootSightings.put(year, sightings);
+    LinkedHashMap<Integer, Integer> bigfootSightings = new LinkedHashMap<>();
+    int[] years = columns.getInts(0);
+    int[] sightings = columns.getInts(1);
+    for (int i = 0; i < columns.getRowCount(); i++) {
+      bigfootSightings.put(years[i], sightings[i]);
     }
-    scanner.close();
+
+    // The data never changes, so the response is built once instead of on every request.
+    Gson gson = new Gson();
+    bigfootJson = EncodedResponse.of(gson.toJson(bigfootSightings));
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(bigfootSightings);
-    response.getWriter().println(json);
+    bigfootJson.write(request, response);
   }
 }
@@ -0,0 +1,71 @@
+#!/bin/bash
+# Copyright 2019 Google LLC
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     https://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Sends a burst of votes to a running server from several clients at once, then checks that
+# every vote was counted and prints how many votes per second the server took.
+#
+# Usage: ./load-test.sh [votes] [clients] [server]
+# Run it with more clients (up to the server's core count and beyond) to see how it scales.
+
+set -e
+
+VOTES=${1:-20000}
+CLIENTS=${2:-8}
+SERVER=${3:-localhost:8080}
+COLORS=(Red Orange Yellow Green Blue Violet)
+
+# Adds up every count in the server's JSON. Only numbers right after a key's closing quote are
+# counts; anyone can vote for a color with digits (or an escaped quote) in its name.
+total_votes() {
+  curl -s "$SERVER/color-data" | grep -o '[^\\]": *[0-9]\+' | sed 's/.*: *//' \
+      | awk '{ sum += $1 } END { print sum + 0 }'
+}
+
+# Each client sends its share of the votes over one connection, cycling through the colors. The
+# requests go in a curl config file because there are too many for the command line.
+configs=$(mktemp -d)
+trap 'rm -rf "$configs"' EXIT
+for ((client = 0; client < CLIENTS; client++)); do
+  votes=$((VOTES / CLIENTS + (client < VOTES % CLIENTS ? 1 : 0)))
+  for ((vote = 0; vote < votes; vote++)); do
+    if ((vote > 0)); then
+      echo "next"
+    fi
+    echo "url = \"$SERVER/color-data\""
+    echo "data = \"color=${COLORS[$(((client + vote) % ${#COLORS[@]}))]}\""
+    echo "output = \"/dev/null\""
+  done > "$configs/$client"
+done
+
+before=$(total_votes)
+start=$(date +%s.%N)
+
+for ((client = 0; client < CLIENTS; client++)); do
+  curl -s -K "$configs/$client" &
+done
+wait
+
+end=$(date +%s.%N)
+after=$(total_votes)
+
+counted=$((after - before))
+echo "Sent $VOTES votes from $CLIENTS clients, counted $counted"
+awk -v votes="$VOTES" -v start="$start" -v end="$end" \
+    'BEGIN { printf "%.0f votes per second\n", votes / (end - start) }'
+
+if [ "$counted" -ne "$VOTES" ]; then
+  echo "Lost $((VOTES - counted)) votes"
+  exit 1
+fi
@@ -0,0 +1,51 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts votes for each color without locks. Each color has its own {@link LongAdder}, which
+ * spreads concurrent increments over several cells instead of making every voter fight over one,
+ * so votes for the same color from many threads at once are neither lost nor serialized.
+ */
+public final class VoteCounter {
+  private final ConcurrentHashMap<String, LongAdder> votes = new ConcurrentHashMap<>();
+
+  /** Adds one vote for {@code color}. */
+  public void vote(String color) {
+    LongAdder counter = votes.get(color);
+    if (counter == null) {
+      // Only the first vote for a color needs to go through the map's slower path.
+      counter = votes.computeIfAbsent(color, key -> new LongAdder());
+    }
+    counter.increment();
+  }
+
+  /**
+   * Returns the votes for every color so far, sorted by color. Each count includes every vote
+   * that finished before this call, though votes cast while it runs may or may not be counted.
+   */
+  public Map<String, Long> snapshot() {
+    Map<String, Long> snapshot = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : votes.entrySet()) {
+      snapshot.put(entry.getKey(), entry.getValue().sum());
+    }
+    return snapshot;
+  }
+}
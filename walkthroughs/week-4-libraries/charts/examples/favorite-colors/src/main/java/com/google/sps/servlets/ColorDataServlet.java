@@ -14,35 +14,39 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.VoteCounter;
 import com.google.gson.Gson;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-
+/**
+ * Counts votes for favorite colors and returns the totals as a JSON object, e.g.
+ * {"blue": 12, "green": 7}. Votes from any number of concurrent requests are all counted.
+ */
 @WebServlet("/color-data")
 public class ColorDataServlet extends HttpServlet {
 
-  private Map<String, Integer> colorVotes = new HashMap<>();
+  private final VoteCounter colorVotes = new VoteCounter();
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
     response.setContentType("application/json");
     Gson gson = new Gson();
-    String json = gson.toJson(colorVotes);
+    String json = gson.toJson(colorVotes.snapshot());
     response.getWriter().println(json);
   }
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     String color = request.getParameter("color");
-    int currentVotes = colorVotes.containsKey(color) ? colorVotes.get(color) : 0;
-    colorVotes.put(color, currentVotes + 1);
+    if (color == null || color.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Pick a color to vote for");
+      return;
+    }
+    colorVotes.vote(color);
 
     response.sendRedirect("/index.html");
   }
@@ -0,0 +1,393 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import javax.servlet.ServletContext;
+
+/**
+ * Numeric columns read from a CSV file with no header. The file is memory-mapped and numbers are
+ * parsed straight from its bytes into primitive arrays, without building a string for each line
+ * or a boxed number for each cell. The columns are then saved to a binary cache file, so later
+ * startups only have to copy them back in as long as the CSV hasn't changed.
+ */
+public final class CsvColumns {
+
+  /** What kind of number a column holds. */
+  public enum Type {
+    INT,
+    DOUBLE
+  }
+
+  private static final int CACHE_MAGIC = 0x43535643;
+  private static final int CACHE_VERSION = 1;
+
+  // Powers of ten that a double holds exactly, for parsing decimals without rounding twice.
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final Type[] types;
+  private final int rows;
+  private final int[][] ints;
+  private final double[][] doubles;
+
+  private CsvColumns(Type[] types, int rows, int[][] ints, double[][] doubles) {
+    this.types = types;
+    this.rows = rows;
+    this.ints = ints;
+    this.doubles = doubles;
+  }
+
+  /**
+   * Loads the columns of a CSV file in the web app. If the app is unpacked on disk, the file is
+   * memory-mapped and cached in the container's temporary directory; otherwise it is read into
+   * memory and parsed every time.
+   */
+  public static CsvColumns load(ServletContext context, String resource, Type... types)
+      throws IOException {
+    String csv = context.getRealPath(resource);
+    File tempDirectory = (File) context.getAttribute(ServletContext.TEMPDIR);
+    if (csv != null && tempDirectory != null) {
+      String cacheName = resource.replaceAll("[^A-Za-z0-9.-]", "_") + ".columns";
+      return load(Paths.get(csv), tempDirectory.toPath().resolve(cacheName), types);
+    }
+
+    try (InputStream in = context.getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IOException(resource + " does not exist");
+      }
+      return parse(ByteBuffer.wrap(readAll(in)), types);
+    }
+  }
+
+  /**
+   * Loads the columns of {@code csv}, from {@code cache} if it was written for the file as it is
+   * now. Otherwise the file is parsed and the cache is rewritten.
+   */
+  public static CsvColumns load(Path csv, Path cache, Type... types) throws IOException {
+    long size = Files.size(csv);
+    long modified = Files.getLastModifiedTime(csv).toMillis();
+    CsvColumns columns = readCache(cache, size, modified, types);
+    if (columns != null) {
+      return columns;
+    }
+
+    try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+      columns = parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), types);
+    }
+    try {
+      columns.writeCache(cache, size, modified);
+    } catch (IOException e) {
+      // The cache only saves time, so carry on without it.
+    }
+    return columns;
+  }
+
+  /**
+   * Parses CSV {@code bytes} whose lines hold a number for each of {@code types}. Blank lines are
+   * skipped, and any cells after the last column are ignored.
+   */
+  public static CsvColumns parse(ByteBuffer bytes, Type... types) throws IOException {
+    // Count the lines first so that every column is allocated once at its final size.
+    int lines = 0;
+    int end = bytes.limit();
+    for (int i = bytes.position(); i < end; i++) {
+      if (bytes.get(i) == '\n') {
+        lines++;
+      }
+    }
+    lines++;
+
+    int[][] ints = new int[types.length][];
+    double[][] doubles = new double[types.length][];
+    for (int column = 0; column < types.length; column++) {
+      if (types[column] == Type.INT) {
+        ints[column] = new int[lines];
+      } else {
+        doubles[column] = new double[lines];
+      }
+    }
+
+    int rows = 0;
+    int i = bytes.position();
+    while (i < end) {
+      byte first = bytes.get(i);
+      if (first == '\n' || first == '\r') {
+        i++;
+        continue;
+      }
+
+      for (int column = 0; column < types.length; column++) {
+        int cellEnd = i;
+        while (cellEnd < end && bytes.get(cellEnd) != ',' && bytes.get(cellEnd) != '\n'
+            && bytes.get(cellEnd) != '\r') {
+          cellEnd++;
+        }
+        if (types[column] == Type.INT) {
+          ints[column][rows] = parseInt(bytes, i, cellEnd, rows);
+        } else {
+          doubles[column][rows] = parseDouble(bytes, i, cellEnd, rows);
+        }
+        if (column < types.length - 1 && (cellEnd == end || bytes.get(cellEnd) != ',')) {
+          throw new IOException("Row " + (rows + 1) + " has fewer than " + types.length
+              + " cells");
+        }
+        i = cellEnd + 1;
+      }
+
+      // Skip whatever is left of the line.
+      i--;
+      while (i < end && bytes.get(i) != '\n') {
+        i++;
+      }
+      rows++;
+    }
+
+    for (int column = 0; column < types.length; column++) {
+      if (ints[column] != null) {
+        ints[column] = Arrays.copyOf(ints[column], rows);
+      } else {
+        doubles[column] = Arrays.copyOf(doubles[column], rows);
+      }
+    }
+    return new CsvColumns(types.clone(), rows, ints, doubles);
+  }
+
+  public int getRowCount() {
+    return rows;
+  }
+
+  /** Returns the values of an {@link Type#INT} column. */
+  public int[] getInts(int column) {
+    if (types[column] != Type.INT) {
+      throw new IllegalArgumentException("Column " + column + " holds " + types[column]);
+    }
+    return ints[column];
+  }
+
+  /** Returns the values of a {@link Type#DOUBLE} column. */
+  public double[] getDoubles(int column) {
+    if (types[column] != Type.DOUBLE) {
+      throw new IllegalArgumentException("Column " + column + " holds " + types[column]);
+    }
+    return doubles[column];
+  }
+
+  private static int parseInt(ByteBuffer bytes, int start, int end, int row) throws IOException {
+    int i = start;
+    boolean negative = i < end && bytes.get(i) == '-';
+    if (negative || (i < end && bytes.get(i) == '+')) {
+      i++;
+    }
+    if (i == end) {
+      throw badNumber(bytes, start, end, row);
+    }
+
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = bytes.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw badNumber(bytes, start, end, row);
+      }
+      value = value * 10 + digit;
+      if (value > Integer.MAX_VALUE + 1L) {
+        throw badNumber(bytes, start, end, row);
+      }
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE) {
+      throw badNumber(bytes, start, end, row);
+    }
+    return (int) value;
+  }
+
+  private static double parseDouble(ByteBuffer bytes, int start, int end, int row)
+      throws IOException {
+    int i = start;
+    boolean negative = i < end && bytes.get(i) == '-';
+    if (negative || (i < end && bytes.get(i) == '+')) {
+      i++;
+    }
+
+    // Read the digits as one whole number and count how many came after the point.
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean point = false;
+    for (; i < end; i++) {
+      byte b = bytes.get(i);
+      if (b == '.' && !point) {
+        point = true;
+      } else if (b >= '0' && b <= '9') {
+        if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+          // Too many digits to get exactly right here.
+          return slowParseDouble(bytes, start, end, row);
+        }
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (point) {
+          scale++;
+        }
+      } else {
+        // Exponents and anything unusual take the slow but complete route.
+        return slowParseDouble(bytes, start, end, row);
+      }
+    }
+    if (digits == 0) {
+      throw badNumber(bytes, start, end, row);
+    }
+    if (scale >= POWERS_OF_TEN.length) {
+      // Leading zeros don't fill up the mantissa, so a long enough fraction gets here.
+      return slowParseDouble(bytes, start, end, row);
+    }
+
+    // Both numbers are exact doubles, so one division rounds the result correctly.
+    double value = mantissa / POWERS_OF_TEN[scale];
+    return negative ? -value : value;
+  }
+
+  private static double slowParseDouble(ByteBuffer bytes, int start, int end, int row)
+      throws IOException {
+    try {
+      return Double.parseDouble(text(bytes, start, end));
+    } catch (NumberFormatException e) {
+      throw badNumber(bytes, start, end, row);
+    }
+  }
+
+  private static IOException badNumber(ByteBuffer bytes, int start, int end, int row) {
+    return new IOException(
+        "Row " + (row + 1) + " has \"" + text(bytes, start, end) + "\" instead of a number");
+  }
+
+  private static String text(ByteBuffer bytes, int start, int end) {
+    byte[] cell = new byte[end - start];
+    for (int i = start; i < end; i++) {
+      cell[i - start] = bytes.get(i);
+    }
+    return new String(cell, StandardCharsets.UTF_8);
+  }
+
+  // Returns null if there is no cache for this version of the CSV.
+  private static CsvColumns readCache(Path cache, long size, long modified, Type[] types)
+      throws IOException {
+    if (!Files.isRegularFile(cache)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+      ByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+              .order(ByteOrder.nativeOrder());
+      if (buffer.remaining() < 32 || buffer.getInt() != CACHE_MAGIC
+          || buffer.getInt() != CACHE_VERSION || buffer.getLong() != size
+          || buffer.getLong() != modified) {
+        return null;
+      }
+
+      int rows = buffer.getInt();
+      int columnCount = buffer.getInt();
+      if (columnCount != types.length) {
+        return null;
+      }
+      for (Type type : types) {
+        if (buffer.get() != type.ordinal()) {
+          return null;
+        }
+      }
+
+      long expected = (long) buffer.position();
+      for (Type type : types) {
+        expected += (long) rows * (type == Type.INT ? Integer.BYTES : Double.BYTES);
+      }
+      if (expected != buffer.limit()) {
+        return null;
+      }
+
+      int[][] ints = new int[types.length][];
+      double[][] doubles = new double[types.length][];
+      for (int column = 0; column < types.length; column++) {
+        if (types[column] == Type.INT) {
+          ints[column] = new int[rows];
+          buffer.asIntBuffer().get(ints[column]);
+          buffer.position(buffer.position() + rows * Integer.BYTES);
+        } else {
+          doubles[column] = new double[rows];
+          buffer.asDoubleBuffer().get(doubles[column]);
+          buffer.position(buffer.position() + rows * Double.BYTES);
+        }
+      }
+      return new CsvColumns(types.clone(), rows, ints, doubles);
+    }
+  }
+
+  private void writeCache(Path cache, long size, long modified) throws IOException {
+    int header = 4 + 4 + 8 + 8 + 4 + 4 + types.length;
+    long length = header;
+    for (Type type : types) {
+      length += (long) rows * (type == Type.INT ? Integer.BYTES : Double.BYTES);
+    }
+
+    // Written under another name and moved into place, so a reader never sees half a cache.
+    Path temp = cache.resolveSibling(cache.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, length).order(ByteOrder.nativeOrder());
+      buffer.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putLong(size).putLong(modified);
+      buffer.putInt(rows).putInt(types.length);
+      for (Type type : types) {
+        buffer.put((byte) type.ordinal());
+      }
+      for (int column = 0; column < types.length; column++) {
+        if (types[column] == Type.INT) {
+          buffer.asIntBuffer().put(ints[column]);
+          buffer.position(buffer.position() + rows * Integer.BYTES);
+        } else {
+          buffer.asDoubleBuffer().put(doubles[column]);
+          buffer.position(buffer.position() + rows * Double.BYTES);
+        }
+      }
+    }
+    Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      bytes.write(buffer, 0, read);
+    }
+    return bytes.toByteArray();
+  }
+}
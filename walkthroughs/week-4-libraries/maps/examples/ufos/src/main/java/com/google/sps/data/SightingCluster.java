@@ -14,13 +14,30 @@
 
 package com.google.sps.data;
 
-/** Represents a UFO sighting at a specific lat lng point. */
-public class UfoSighting {
+/**
+ * One marker on the map: either a single sighting or a cluster of nearby sightings, placed at
+ * their average position.
+ */
+public class SightingCluster {
   private double lat;
   private double lng;
+  private int count;
 
-  public UfoSighting(double lat, double lng) {
+  public SightingCluster(double lat, double lng, int count) {
     this.lat = lat;
     this.lng = lng;
+    this.count = count;
+  }
+
+  public double getLat() {
+    return lat;
+  }
+
+  public double getLng() {
+    return lng;
+  }
+
+  public int getCount() {
+    return count;
   }
 }
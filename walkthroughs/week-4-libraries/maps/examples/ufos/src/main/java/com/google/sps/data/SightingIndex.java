@@ -0,0 +1,195 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Quadtree over the sightings, laid out as one array sorted in Z-order. Every square of the map at
+ * every zoom level holds a contiguous run of that array, so a viewport query walks down only the
+ * squares it can see, and a square's size and average position come straight from prefix sums.
+ * The work and the answer grow with what is on screen rather than with the number of sightings.
+ */
+public final class SightingIndex {
+  // Levels of the quadtree, counted like map zoom levels. Squares at the deepest level are a few
+  // meters across, which is finer than the data's precision.
+  private static final int MAX_LEVEL = 24;
+  private static final int SIZE = 1 << MAX_LEVEL;
+
+  // Clusters are squares three levels below the zoom level, about 32 pixels across on screen.
+  private static final int CLUSTER_LEVELS_BELOW_ZOOM = 3;
+
+  // Web Mercator stops here, so the map never shows anything closer to the poles.
+  private static final double MAX_LATITUDE = 85.05112878;
+
+  private final long[] keys;
+  private final double[] lats;
+  private final double[] lngs;
+  private final double[] latSums;
+  private final double[] lngSums;
+
+  private SightingIndex(long[] keys, double[] lats, double[] lngs) {
+    this.keys = keys;
+    this.lats = lats;
+    this.lngs = lngs;
+    this.latSums = prefixSums(lats);
+    this.lngSums = prefixSums(lngs);
+  }
+
+  /** Builds an index over the sightings at ({@code lats[i]}, {@code lngs[i]}). */
+  public static SightingIndex of(double[] lats, double[] lngs) {
+    int count = lats.length;
+    Integer[] order = new Integer[count];
+    long[] unsortedKeys = new long[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+      unsortedKeys[i] = interleave(toX(lngs[i]), toY(lats[i]));
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(unsortedKeys[a], unsortedKeys[b]));
+
+    long[] keys = new long[count];
+    double[] sortedLats = new double[count];
+    double[] sortedLngs = new double[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = unsortedKeys[order[i]];
+      sortedLats[i] = lats[order[i]];
+      sortedLngs[i] = lngs[order[i]];
+    }
+    return new SightingIndex(keys, sortedLats, sortedLngs);
+  }
+
+  /**
+   * Returns the markers to draw for the box between {@code south}, {@code west}, {@code north} and
+   * {@code east} at map zoom level {@code zoom}. Sightings that share a cluster-sized square are
+   * merged into one marker. A box whose west edge is east of its east edge wraps around the
+   * antimeridian.
+   */
+  public List<SightingCluster> query(
+      double south, double west, double north, double east, int zoom) {
+    int level = Math.max(0, Math.min(zoom + CLUSTER_LEVELS_BELOW_ZOOM, MAX_LEVEL));
+    int minY = toY(north);
+    int maxY = toY(south);
+
+    List<SightingCluster> clusters = new ArrayList<>();
+    if (west <= east) {
+      collect(0, 0, 0, 0, keys.length, level, toX(west), toX(east), minY, maxY, clusters);
+    } else {
+      collect(0, 0, 0, 0, keys.length, level, toX(west), SIZE - 1, minY, maxY, clusters);
+      collect(0, 0, 0, 0, keys.length, level, 0, toX(east), minY, maxY, clusters);
+    }
+    return clusters;
+  }
+
+  // Adds the markers for the square at (tileX, tileY) on the given level, whose sightings are
+  // the ones from lo to hi, if any of it falls in the box.
+  private void collect(int level, int tileX, int tileY, int lo, int hi, int clusterLevel,
+      int minX, int maxX, int minY, int maxY, List<SightingCluster> clusters) {
+    int shift = MAX_LEVEL - level;
+    if (lo == hi || (tileX << shift) > maxX || ((tileX + 1) << shift) - 1 < minX
+        || (tileY << shift) > maxY || ((tileY + 1) << shift) - 1 < minY) {
+      return;
+    }
+
+    if (hi - lo == 1) {
+      // A lone sighting is drawn where it is, so it has to be in the box itself.
+      int x = deinterleave(keys[lo]);
+      int y = deinterleave(keys[lo] >>> 1);
+      if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+        clusters.add(new SightingCluster(lats[lo], lngs[lo], 1));
+      }
+      return;
+    }
+
+    if (level == clusterLevel) {
+      int count = hi - lo;
+      clusters.add(new SightingCluster((latSums[hi] - latSums[lo]) / count,
+          (lngSums[hi] - lngSums[lo]) / count, count));
+      return;
+    }
+
+    // The four children split the run in Z-order, so each boundary is one binary search away.
+    long span = 1L << (2 * (shift - 1));
+    long firstKey = interleave(tileX, tileY) << (2 * shift);
+    int childLo = lo;
+    for (int child = 0; child < 4; child++) {
+      int childHi = child == 3 ? hi : lowerBound(childLo, hi, firstKey + (child + 1) * span);
+      collect(level + 1, 2 * tileX + (child & 1), 2 * tileY + (child >> 1), childLo, childHi,
+          clusterLevel, minX, maxX, minY, maxY, clusters);
+      childLo = childHi;
+    }
+  }
+
+  // Returns the first position from lo to hi whose key is at least key.
+  private int lowerBound(int lo, int hi, long key) {
+    while (lo < hi) {
+      int middle = (lo + hi) >>> 1;
+      if (keys[middle] < key) {
+        lo = middle + 1;
+      } else {
+        hi = middle;
+      }
+    }
+    return lo;
+  }
+
+  private static int toX(double lng) {
+    return toCell((lng + 180) / 360);
+  }
+
+  private static int toY(double lat) {
+    double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat))));
+    return toCell(0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI));
+  }
+
+  private static int toCell(double fraction) {
+    return (int) Math.max(0, Math.min(SIZE - 1, Math.floor(fraction * SIZE)));
+  }
+
+  // Spreads the bits of x and y out so that x takes the even bits and y the odd ones.
+  private static long interleave(int x, int y) {
+    return spread(x) | (spread(y) << 1);
+  }
+
+  private static long spread(int value) {
+    long bits = value & 0xFFFFFFFFL;
+    bits = (bits | (bits << 16)) & 0x0000FFFF0000FFFFL;
+    bits = (bits | (bits << 8)) & 0x00FF00FF00FF00FFL;
+    bits = (bits | (bits << 4)) & 0x0F0F0F0F0F0F0F0FL;
+    bits = (bits | (bits << 2)) & 0x3333333333333333L;
+    bits = (bits | (bits << 1)) & 0x5555555555555555L;
+    return bits;
+  }
+
+  // Collects the even bits of key back into one number.
+  private static int deinterleave(long key) {
+    long bits = key & 0x5555555555555555L;
+    bits = (bits | (bits >>> 1)) & 0x3333333333333333L;
+    bits = (bits | (bits >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+    bits = (bits | (bits >>> 4)) & 0x00FF00FF00FF00FFL;
+    bits = (bits | (bits >>> 8)) & 0x0000FFFF0000FFFFL;
+    bits = (bits | (bits >>> 16)) & 0x00000000FFFFFFFFL;
+    return (int) bits;
+  }
+
+  private static double[] prefixSums(double[] values) {
+    double[] sums = new double[values.length + 1];
+    for (int i = 0; i < values.length; i++) {
+      sums[i + 1] = sums[i] + values[i];
+    }
+    return sums;
+  }
+}
@@ -0,0 +1,185 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A JSON response encoded as is and gzipped, with a strong ETag for each. Sending it is a matter
+ * of picking one from the request's {@code Accept-Encoding} header and copying its bytes, or
+ * answering 304 Not Modified if the client already has them.
+ */
+final class EncodedResponse {
+  private final byte[] identity;
+  private final int gzipLevel;
+  private final String identityEtag;
+  private final String gzipEtag;
+
+  // Made on first use. Two requests may both make it, but they make the same bytes.
+  private volatile byte[] gzip;
+
+  private EncodedResponse(byte[] identity, int gzipLevel) {
+    this.identity = identity;
+    this.gzipLevel = gzipLevel;
+    String hash = hash(identity);
+    this.identityEtag = "\"" + hash + "\"";
+    // Each encoding is a different set of bytes, so it needs an ETag of its own.
+    this.gzipEtag = "\"" + hash + "-gzip\"";
+  }
+
+  /**
+   * Encodes {@code json} every way this class can send it, compressing as hard as gzip can. This
+   * is for responses built once and sent many times.
+   */
+  static EncodedResponse of(String json) {
+    EncodedResponse response =
+        new EncodedResponse(json.getBytes(StandardCharsets.UTF_8), Deflater.BEST_COMPRESSION);
+    response.gzip();
+    return response;
+  }
+
+  /**
+   * Prepares {@code json} for a response that may only be sent a few times. It is only gzipped,
+   * at the default level, once a client that accepts gzip asks for it.
+   */
+  static EncodedResponse lazy(String json) {
+    return new EncodedResponse(
+        json.getBytes(StandardCharsets.UTF_8), Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /** Returns the size of the JSON before compression. */
+  int size() {
+    return identity.length;
+  }
+
+  /** Sends the best encoding the client accepts, or 304 Not Modified if it's already cached. */
+  void write(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    boolean gzipped = acceptsGzip(request.getHeader("Accept-Encoding"));
+    String etag = gzipped ? gzipEtag : identityEtag;
+
+    response.setHeader("ETag", etag);
+    response.setHeader("Vary", "Accept-Encoding");
+    if (matches(request.getHeader("If-None-Match"), etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] bytes = gzipped ? gzip() : identity;
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    if (gzipped) {
+      response.setHeader("Content-Encoding", "gzip");
+    }
+    response.setContentLength(bytes.length);
+    response.getOutputStream().write(bytes);
+  }
+
+  /**
+   * Checks whether an {@code Accept-Encoding} header allows gzip, either by name or through
+   * {@code *}, without a quality of zero.
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    boolean accepted = false;
+    for (String part : acceptEncoding.split(",")) {
+      String[] fields = part.split(";");
+      String coding = fields[0].trim().toLowerCase();
+      boolean allowed = true;
+      for (int i = 1; i < fields.length; i++) {
+        String parameter = fields[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            allowed = Double.parseDouble(parameter.substring(2)) > 0;
+          } catch (NumberFormatException e) {
+            allowed = false;
+          }
+        }
+      }
+      if (coding.equals("gzip") || coding.equals("x-gzip")) {
+        // Naming gzip itself beats whatever * said.
+        return allowed;
+      }
+      if (coding.equals("*")) {
+        accepted = allowed;
+      }
+    }
+    return accepted;
+  }
+
+  /** Checks an {@code If-None-Match} header, which may list several ETags or be {@code *}. */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      // A weak match is enough for If-None-Match.
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private byte[] gzip() {
+    byte[] bytes = gzip;
+    if (bytes == null) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (GZIPOutputStream gzipOut = new GZIPOutputStream(out) {
+            {
+              def.setLevel(gzipLevel);
+            }
+          }) {
+        gzipOut.write(identity);
+      } catch (IOException e) {
+        // Writing to memory can't fail.
+        throw new AssertionError(e);
+      }
+      bytes = out.toByteArray();
+      gzip = bytes;
+    }
+    return bytes;
+  }
+
+  // Returns the start of the SHA-256 hash of bytes in hex, for making strong ETags.
+  private static String hash(byte[] bytes) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+      StringBuilder hex = new StringBuilder();
+      for (int i = 0; i < 16; i++) {
+        hex.append(String.format("%02x", hash[i]));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new AssertionError(e);
+    }
+  }
+}
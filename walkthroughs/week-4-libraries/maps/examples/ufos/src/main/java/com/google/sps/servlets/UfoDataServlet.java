@@ -14,45 +14,124 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.data.UfoSighting;
+import com.google.sps.data.CsvColumns;
+import com.google.sps.data.SightingCluster;
+import com.google.sps.data.SightingIndex;
 import com.google.gson.Gson;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Scanner;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns UFO data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}] */
+/**
+ * Returns the UFO sightings in a map viewport as a JSON array, e.g.
+ * [{"lat": 38.4404675, "lng": -122.7144313, "count": 1}]. The viewport is given by the north,
+ * south, east and west query parameters along with the map's zoom level, and sightings close
+ * enough to overlap at that zoom come back as one marker with their count. Without parameters the
+ * whole world is returned at the deepest zoom level.
+ */
 @WebServlet("/ufo-data")
 public class UfoDataServlet extends HttpServlet {
 
-  private Collection<UfoSighting> ufoSightings;
+  private static final int MAX_ZOOM = 21;
 
-  @Override
-  public void init() {
-    ufoSightings = new ArrayList<>();
+  // How much viewport JSON to keep around, before compression.
+  private static final long MAX_CACHED_BYTES = 16 * 1024 * 1024;
 
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/ufo-data.csv"));
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
+  private SightingIndex sightingIndex;
+  private EncodedResponse everySightingJson;
 
-      double lat = Double.parseDouble(cells[0]);
-      double lng = Double.parseDouble(cells[1]);
+  // Recently sent viewports by query string, least recently used first.
+  private final Map<String, EncodedResponse> viewportJson = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes;
 
-      ufoSightings.add(new UfoSighting(lat, lng));
+  @Override
+  public void init() throws ServletException {
+    CsvColumns columns;
+    try {
+      columns = CsvColumns.load(getServletContext(), "/WEB-INF/ufo-data.csv",
+          CsvColumns.Type.DOUBLE, CsvColumns.Type.DOUBLE);
+    } catch (IOException e) {
+      throw new ServletException("Could not load the UFO sightings", e);
     }
-    scanner.close();
+
+    sightingIndex = SightingIndex.of(columns.getDoubles(0), columns.getDoubles(1));
+
+    // The whole world is the same answer every time, so it is built once up front.
+    Gson gson = new Gson();
+    everySightingJson =
+        EncodedResponse.of(gson.toJson(sightingIndex.query(-90, -180, 90, 180, MAX_ZOOM)));
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
+    if (request.getQueryString() == null) {
+      everySightingJson.write(request, response);
+      return;
+    }
+
+    String key = request.getQueryString();
+    EncodedResponse cached;
+    synchronized (viewportJson) {
+      cached = viewportJson.get(key);
+    }
+    if (cached != null) {
+      cached.write(request, response);
+      return;
+    }
+
+    List<SightingCluster> clusters;
+    try {
+      clusters = sightingIndex.query(
+          getParameter(request, "south", -90),
+          getParameter(request, "west", -180),
+          getParameter(request, "north", 90),
+          getParameter(request, "east", 180),
+          (int) getParameter(request, "zoom", MAX_ZOOM));
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    // Viewports vary too much to build ahead of time, so each one is encoded when it's first
+    // asked for and kept in case it's asked for again.
     Gson gson = new Gson();
-    String json = gson.toJson(ufoSightings);
-    response.getWriter().println(json);
+    EncodedResponse encoded = EncodedResponse.lazy(gson.toJson(clusters));
+    cache(key, encoded);
+    encoded.write(request, response);
+  }
+
+  // Keeps encoded for key, dropping the least recently used viewports to stay under the limit.
+  private void cache(String key, EncodedResponse encoded) {
+    synchronized (viewportJson) {
+      EncodedResponse previous = viewportJson.put(key, encoded);
+      if (previous != null) {
+        cachedBytes -= previous.size();
+      }
+      cachedBytes += encoded.size();
+
+      Iterator<EncodedResponse> leastRecent = viewportJson.values().iterator();
+      while (cachedBytes > MAX_CACHED_BYTES && leastRecent.hasNext()) {
+        cachedBytes -= leastRecent.next().size();
+        leastRecent.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the request parameter as a number, or the default value if it was not specified
+   */
+  private double getParameter(HttpServletRequest request, String name, double defaultValue) {
+    String value = request.getParameter(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Double.parseDouble(value);
   }
 }
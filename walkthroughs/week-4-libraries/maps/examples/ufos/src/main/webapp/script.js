@@ -12,16 +12,40 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 
-/** Fetches UFO sightings data from the server and displays it in a map. */
+/**
+ * Creates a map and shows the UFO sightings in view, fetching them again from the server whenever
+ * the map stops moving. Nearby sightings come back as one marker labeled with their count.
+ */
 function createUfoSightingsMap() {
-  fetch('/ufo-data').then(response => response.json()).then((ufoSightings) => {
-    const map = new google.maps.Map(
-        document.getElementById('map'),
-        {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
+  const map = new google.maps.Map(
+      document.getElementById('map'),
+      {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
 
-    ufoSightings.forEach((ufoSighting) => {
-      new google.maps.Marker(
-          {position: {lat: ufoSighting.lat, lng: ufoSighting.lng}, map: map});
+  let markers = [];
+  let latestRequest = 0;
+  map.addListener('idle', () => {
+    const bounds = map.getBounds();
+    const params = new URLSearchParams({
+      north: bounds.getNorthEast().lat(),
+      east: bounds.getNorthEast().lng(),
+      south: bounds.getSouthWest().lat(),
+      west: bounds.getSouthWest().lng(),
+      zoom: map.getZoom(),
+    });
+
+    const request = ++latestRequest;
+    fetch('/ufo-data?' + params).then(response => response.json()).then((ufoSightings) => {
+      // Ignore answers for viewports the map has already moved away from.
+      if (request !== latestRequest) {
+        return;
+      }
+
+      markers.forEach((marker) => marker.setMap(null));
+      markers = ufoSightings.map((ufoSighting) => new google.maps.Marker({
+        position: {lat: ufoSighting.lat, lng: ufoSighting.lng},
+        label: ufoSighting.count > 1 ? String(ufoSighting.count) : null,
+        map: map,
+      }));
     });
   });
 }
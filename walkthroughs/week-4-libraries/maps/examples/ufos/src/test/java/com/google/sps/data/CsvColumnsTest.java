@@ -0,0 +1,183 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CsvColumnsTest {
+  private static final CsvColumns.Type INT = CsvColumns.Type.INT;
+  private static final CsvColumns.Type DOUBLE = CsvColumns.Type.DOUBLE;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path csv;
+  private Path cache;
+
+  @Before
+  public void setUp() throws IOException {
+    csv = folder.getRoot().toPath().resolve("data.csv");
+    cache = folder.getRoot().toPath().resolve("data.csv.columns");
+  }
+
+  private static CsvColumns parse(String text, CsvColumns.Type... types) throws IOException {
+    return CsvColumns.parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), types);
+  }
+
+  private static void assertRejected(String text, CsvColumns.Type... types) {
+    try {
+      parse(text, types);
+      Assert.fail("Parsed \"" + text + "\"");
+    } catch (IOException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void readsSignedNumbers() throws IOException {
+    CsvColumns columns = parse("1,-2.5\n-30,+4\n+7,-0.125\n", INT, DOUBLE);
+
+    Assert.assertEquals(3, columns.getRowCount());
+    Assert.assertArrayEquals(new int[] {1, -30, 7}, columns.getInts(0));
+    Assert.assertArrayEquals(new double[] {-2.5, 4, -0.125}, columns.getDoubles(1), 0);
+  }
+
+  @Test
+  public void doublesMatchDoubleParseDouble() throws IOException {
+    // Short decimals take the fast path. Long fractions, long mantissas and exponents don't fit
+    // it and fall back to Double.parseDouble, which has to give the same answer.
+    String[] cells = {
+      "38.4404675", "-122.7144313", "0.1", "5.", ".5", "0.000000000000000000000001",
+      "3.14159265358979323846", "123456789012345678", "1e3", "-2.5E-3", "1.7976931348623157E308"
+    };
+    StringBuilder text = new StringBuilder();
+    for (String cell : cells) {
+      text.append(cell).append('\n');
+    }
+
+    double[] parsed = parse(text.toString(), DOUBLE).getDoubles(0);
+
+    Assert.assertEquals(cells.length, parsed.length);
+    for (int i = 0; i < cells.length; i++) {
+      Assert.assertEquals(cells[i], Double.parseDouble(cells[i]), parsed[i], 0);
+    }
+  }
+
+  @Test
+  public void handlesWindowsLineEndingsAndBlankLines() throws IOException {
+    CsvColumns columns = parse("1,2.5\r\n\r\n3,4.5\r\n", INT, DOUBLE);
+
+    Assert.assertArrayEquals(new int[] {1, 3}, columns.getInts(0));
+    Assert.assertArrayEquals(new double[] {2.5, 4.5}, columns.getDoubles(1), 0);
+  }
+
+  @Test
+  public void ignoresExtraCellsAndAMissingFinalNewline() throws IOException {
+    CsvColumns columns = parse("1,2,ignored\n3,4", INT, INT);
+
+    Assert.assertArrayEquals(new int[] {1, 3}, columns.getInts(0));
+    Assert.assertArrayEquals(new int[] {2, 4}, columns.getInts(1));
+  }
+
+  @Test
+  public void rejectsMissingCells() {
+    assertRejected("1\n", INT, INT);
+    assertRejected("1,\n", INT, INT);
+    assertRejected(",2.5\n", INT, DOUBLE);
+    assertRejected("1,-\n", INT, DOUBLE);
+  }
+
+  @Test
+  public void rejectsIntsThatOverflow() throws IOException {
+    Assert.assertArrayEquals(new int[] {Integer.MAX_VALUE, Integer.MIN_VALUE},
+        parse("2147483647\n-2147483648\n", INT).getInts(0));
+
+    assertRejected("2147483648\n", INT);
+    assertRejected("-2147483649\n", INT);
+    assertRejected("99999999999999999999\n", INT);
+  }
+
+  @Test
+  public void rejectsCellsThatArentNumbers() {
+    assertRejected("1.5\n", INT);
+    assertRejected("abc\n", DOUBLE);
+    assertRejected("1.2.3\n", DOUBLE);
+  }
+
+  @Test
+  public void cachedColumnsRoundTrip() throws IOException {
+    Files.write(csv, "1950,-1.5\n2000,2.25\n".getBytes(StandardCharsets.UTF_8));
+    CsvColumns parsed = CsvColumns.load(csv, cache, INT, DOUBLE);
+    Assert.assertTrue(Files.exists(cache));
+
+    // Same size and time, so the cache is trusted without looking at the CSV again.
+    FileTime modified = Files.getLastModifiedTime(csv);
+    Files.write(csv, "1951,-1.5\n2000,2.25\n".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(csv, modified);
+    CsvColumns cached = CsvColumns.load(csv, cache, INT, DOUBLE);
+
+    Assert.assertArrayEquals(parsed.getInts(0), cached.getInts(0));
+    Assert.assertArrayEquals(parsed.getDoubles(1), cached.getDoubles(1), 0);
+  }
+
+  @Test
+  public void staleCachesAreRejected() throws IOException {
+    Files.write(csv, "1950,-1.5\n".getBytes(StandardCharsets.UTF_8));
+    CsvColumns.load(csv, cache, INT, DOUBLE);
+
+    Files.write(csv, "1951,-1.5\n".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(csv,
+        FileTime.fromMillis(Files.getLastModifiedTime(csv).toMillis() + 1000));
+
+    Assert.assertArrayEquals(new int[] {1951}, CsvColumns.load(csv, cache, INT, DOUBLE).getInts(0));
+  }
+
+  @Test
+  public void cachesForOtherColumnTypesAreRejected() throws IOException {
+    Files.write(csv, "1950,2\n".getBytes(StandardCharsets.UTF_8));
+    CsvColumns.load(csv, cache, INT, DOUBLE);
+
+    CsvColumns columns = CsvColumns.load(csv, cache, INT, INT);
+
+    Assert.assertArrayEquals(new int[] {2}, columns.getInts(1));
+  }
+
+  @Test
+  public void truncatedCachesAreRejected() throws IOException {
+    Files.write(csv, "1950,-1.5\n2000,2.25\n".getBytes(StandardCharsets.UTF_8));
+    CsvColumns.load(csv, cache, INT, DOUBLE);
+    byte[] written = Files.readAllBytes(cache);
+    byte[] truncated = new byte[written.length - Double.BYTES];
+    System.arraycopy(written, 0, truncated, 0, truncated.length);
+    Files.write(cache, truncated);
+
+    CsvColumns columns = CsvColumns.load(csv, cache, INT, DOUBLE);
+
+    Assert.assertArrayEquals(new double[] {-1.5, 2.25}, columns.getDoubles(1), 0);
+  }
+}
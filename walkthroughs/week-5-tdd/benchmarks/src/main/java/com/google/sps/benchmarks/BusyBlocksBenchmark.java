@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.AttendeeIndex;
+import com.google.sps.BusyBlocks;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding the openings for a request from each attendee's raw busy times against merging
+ * the busy blocks the index has already coalesced. The gap grows with {@code overlapDensity},
+ * since heavily overlapping calendars coalesce into far fewer blocks than they have events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusyBlocksBenchmark {
+  // Requests are cycled through so that one lucky request can't dominate the results.
+  private static final int NUM_REQUESTS = 256;
+
+  @Param({"100000"})
+  public int numEvents;
+
+  @Param({"1000"})
+  public int numAttendees;
+
+  @Param({"3"})
+  public int attendeesPerEvent;
+
+  @Param({"0.5", "2.0", "8.0"})
+  public double overlapDensity;
+
+  @Param({"5"})
+  public int requestSize;
+
+  private AttendeeIndex attendeeIndex;
+  private MeetingRequest[] requests;
+  private int nextRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    attendeeIndex = AttendeeIndex.of(
+        Calendars.events(numEvents, numAttendees, attendeesPerEvent, overlapDensity, 1));
+    requests = Calendars.requests(NUM_REQUESTS, numAttendees, requestSize, 2);
+  }
+
+  private MeetingRequest nextRequest() {
+    MeetingRequest request = requests[nextRequest];
+    nextRequest = (nextRequest + 1) % NUM_REQUESTS;
+    return request;
+  }
+
+  @Benchmark
+  public List<TimeRange> rawBusyTimes() {
+    MeetingRequest request = nextRequest();
+    List<TimeRange> busy = new ArrayList<>();
+    for (String attendee : request.getAttendees()) {
+      busy.addAll(attendeeIndex.getBusyTimes(attendee));
+    }
+    return BusyBlocks.of(busy).findOpenings((int) request.getDuration());
+  }
+
+  @Benchmark
+  public List<TimeRange> cachedBusyBlocks() {
+    MeetingRequest request = nextRequest();
+    List<BusyBlocks> blocks = new ArrayList<>();
+    for (String attendee : request.getAttendees()) {
+      blocks.add(attendeeIndex.getBusyBlocks(attendee));
+    }
+    return BusyBlocks.union(blocks).findOpenings((int) request.getDuration());
+  }
+}
@@ -0,0 +1,98 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Generates synthetic calendars and meeting requests for the benchmarks. */
+final class Calendars {
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  private Calendars() {}
+
+  /**
+   * Returns the name used for the attendee with the given number.
+   */
+  static String attendee(int number) {
+    return "Person " + number;
+  }
+
+  /**
+   * Generates {@code numEvents} events shared among {@code numAttendees} people, with
+   * {@code attendeesPerEvent} people in each event.
+   *
+   * <p>{@code overlapDensity} is how much of each attendee's day their events add up to before
+   * overlaps are taken into account. At 0.5 the average person's events cover half the day; above 1
+   * every person is double booked on average. Event lengths are picked around that average, but
+   * always last between one minute and the whole day.
+   */
+  static List<Event> events(int numEvents, int numAttendees, int attendeesPerEvent,
+      double overlapDensity, long seed) {
+    Random random = new Random(seed);
+    attendeesPerEvent = Math.min(attendeesPerEvent, numAttendees);
+
+    double eventsPerAttendee = (double) numEvents * attendeesPerEvent / numAttendees;
+    int meanDuration =
+        clamp((int) Math.round(overlapDensity * MINUTES_PER_DAY / eventsPerAttendee), 1,
+            MINUTES_PER_DAY);
+
+    List<Event> events = new ArrayList<>(numEvents);
+    for (int i = 0; i < numEvents; ++i) {
+      int duration = clamp(1 + random.nextInt(2 * meanDuration), 1, MINUTES_PER_DAY);
+      int start = random.nextInt(MINUTES_PER_DAY - duration + 1);
+
+      List<String> attendees = new ArrayList<>(attendeesPerEvent);
+      for (int j = 0; j < attendeesPerEvent; ++j) {
+        attendees.add(attendee(random.nextInt(numAttendees)));
+      }
+
+      events.add(
+          new Event("Event " + i, TimeRange.fromStartDuration(start, duration), attendees));
+    }
+    return events;
+  }
+
+  /**
+   * Generates {@code numRequests} requests, each for {@code requestSize} random attendees out of
+   * {@code numAttendees} and half of that many optional attendees.
+   */
+  static MeetingRequest[] requests(int numRequests, int numAttendees, int requestSize,
+      long seed) {
+    Random random = new Random(seed);
+    MeetingRequest[] requests = new MeetingRequest[numRequests];
+    for (int i = 0; i < numRequests; ++i) {
+      List<String> attendees = new ArrayList<>(requestSize);
+      for (int j = 0; j < requestSize; ++j) {
+        attendees.add(attendee(random.nextInt(numAttendees)));
+      }
+
+      MeetingRequest request = new MeetingRequest(attendees, 15 + 15 * random.nextInt(4));
+      for (int j = 0; j < requestSize / 2; ++j) {
+        request.addOptionalAttendee(attendee(random.nextInt(numAttendees)));
+      }
+      requests[i] = request;
+    }
+    return requests;
+  }
+
+  private static int clamp(int value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+}
@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.AttendeeIndex;
+import com.google.sps.BusyBitmaps;
+import com.google.sps.Event;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.PackedMeetingQuery;
+import com.google.sps.TimeRange;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one meeting query against a synthetic calendar with each of the query engines. Run
+ * with {@code -prof gc} to also get the allocation rate per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindMeetingQueryBenchmark {
+  // Requests are cycled through so that one lucky request can't dominate the results.
+  private static final int NUM_REQUESTS = 256;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int numEvents;
+
+  @Param({"1000"})
+  public int numAttendees;
+
+  @Param({"3"})
+  public int attendeesPerEvent;
+
+  @Param({"0.5"})
+  public double overlapDensity;
+
+  @Param({"5"})
+  public int requestSize;
+
+  private final FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+  private final PackedMeetingQuery packedMeetingQuery = new PackedMeetingQuery();
+
+  private List<Event> events;
+  private AttendeeIndex attendeeIndex;
+  private BusyBitmaps busyBitmaps;
+  private MeetingRequest[] requests;
+  private int nextRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    events = Calendars.events(numEvents, numAttendees, attendeesPerEvent, overlapDensity, 1);
+    requests = Calendars.requests(NUM_REQUESTS, numAttendees, requestSize, 2);
+    attendeeIndex = AttendeeIndex.of(events);
+    busyBitmaps = BusyBitmaps.of(events);
+  }
+
+  private MeetingRequest nextRequest() {
+    MeetingRequest request = requests[nextRequest];
+    nextRequest = (nextRequest + 1) % NUM_REQUESTS;
+    return request;
+  }
+
+  @Benchmark
+  public Collection<TimeRange> query() {
+    return findMeetingQuery.query(events, nextRequest());
+  }
+
+  @Benchmark
+  public Collection<TimeRange> queryPacked() {
+    return packedMeetingQuery.query(events, nextRequest());
+  }
+
+  @Benchmark
+  public Collection<TimeRange> queryIndexed() {
+    return findMeetingQuery.query(attendeeIndex, nextRequest());
+  }
+
+  @Benchmark
+  public Collection<TimeRange> queryBitmaps() {
+    return busyBitmaps.query(nextRequest());
+  }
+
+  @Benchmark
+  public Collection<TimeRange> queryWithOptionalAttendees() {
+    return findMeetingQuery.queryWithOptionalAttendees(attendeeIndex, nextRequest());
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.benchmarks;
+
+import com.google.sps.Event;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the {@code TimeRange} operations that the query engines lean on. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeRangeBenchmark {
+  @Param({"10", "1000", "100000"})
+  public int numRanges;
+
+  @Param({"0.5"})
+  public double overlapDensity;
+
+  private List<TimeRange> ranges;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // One attendee per event and a single person makes every range part of the same calendar.
+    ranges = new ArrayList<>(numRanges);
+    for (Event event : Calendars.events(numRanges, 1, 1, overlapDensity, 1)) {
+      ranges.add(event.getWhen());
+    }
+  }
+
+  @Benchmark
+  public List<TimeRange> sortByStart() {
+    List<TimeRange> sorted = new ArrayList<>(ranges);
+    Collections.sort(sorted, TimeRange.ORDER_BY_START);
+    return sorted;
+  }
+
+  @Benchmark
+  public int countOverlappingPairs() {
+    // Only neighbours in the original order are compared, so this stays linear in numRanges.
+    int overlapping = 0;
+    for (int i = 1; i < ranges.size(); ++i) {
+      if (ranges.get(i - 1).overlaps(ranges.get(i))) {
+        ++overlapping;
+      }
+    }
+    return overlapping;
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps attendee names to small, dense integer IDs. Events keep sorted arrays of IDs instead of sets
+ * of names, which takes far less memory and lets two attendee sets be intersected with a single
+ * merge instead of hashing every name. Names are never removed, so an ID stays valid for the life
+ * of the dictionary. Dictionaries are safe to use from many threads.
+ */
+public final class AttendeeDictionary {
+  private static final AttendeeDictionary GLOBAL = new AttendeeDictionary();
+
+  private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+  // Names by ID. A name is stored here before its ID is published in ids, so anyone who can see an
+  // ID can also see its name.
+  private volatile String[] names = new String[64];
+  private int size;
+
+  /**
+   * Returns the dictionary shared by every {@code Event} and {@code MeetingRequest}. Only events
+   * add names to it; requests look theirs up with {@link #find}, since nothing removes a name.
+   */
+  public static AttendeeDictionary global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Returns the ID for {@code name}, adding it to the dictionary if it's new.
+   */
+  public int intern(String name) {
+    Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+
+    synchronized (this) {
+      id = ids.get(name);
+      if (id != null) {
+        return id;
+      }
+
+      String[] current = names;
+      if (size == current.length) {
+        current = Arrays.copyOf(current, 2 * size);
+      }
+      current[size] = name;
+      names = current;
+      ids.put(name, size);
+      return size++;
+    }
+  }
+
+  /**
+   * Returns the sorted IDs of {@code names}, without duplicates, adding any new names to the
+   * dictionary.
+   */
+  public int[] intern(Collection<String> names) {
+    int[] interned = new int[names.size()];
+    int count = 0;
+    for (String name : names) {
+      interned[count++] = intern(name);
+    }
+    return sortedUnique(interned, count);
+  }
+
+  /**
+   * Returns the ID for {@code name}, or -1 if the dictionary has never seen it.
+   */
+  public int find(String name) {
+    Integer id = ids.get(name);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Returns the sorted IDs of the names in {@code names} that the dictionary has seen, without
+   * duplicates. Unlike {@link #intern(Collection)}, this never adds a name.
+   */
+  public int[] find(Collection<String> names) {
+    int[] found = new int[names.size()];
+    int count = 0;
+    for (String name : names) {
+      int id = find(name);
+      if (id >= 0) {
+        found[count++] = id;
+      }
+    }
+    return sortedUnique(found, count);
+  }
+
+  /**
+   * Returns the name for an ID handed out by this dictionary.
+   */
+  public String nameOf(int id) {
+    return names[id];
+  }
+
+  /**
+   * Returns the number of names in the dictionary.
+   */
+  public int size() {
+    return ids.size();
+  }
+
+  /**
+   * Checks if two sorted arrays of IDs have at least one ID in common.
+   */
+  public static boolean intersects(int[] a, int[] b) {
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] == b[j]) {
+        return true;
+      }
+      if (a[i] < b[j]) {
+        ++i;
+      } else {
+        ++j;
+      }
+    }
+    return false;
+  }
+
+  // Sorts the first count IDs and returns them without duplicates, reusing ids if it can.
+  private static int[] sortedUnique(int[] ids, int count) {
+    Arrays.sort(ids, 0, count);
+
+    // Drop duplicates, which are now next to each other.
+    int unique = 0;
+    for (int i = 0; i < count; ++i) {
+      if (unique == 0 || ids[unique - 1] != ids[i]) {
+        ids[unique++] = ids[i];
+      }
+    }
+    return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+  }
+}
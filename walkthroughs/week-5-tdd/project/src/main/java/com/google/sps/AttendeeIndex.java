@@ -0,0 +1,182 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index from each attendee to the times they are busy. Looking up the people in a request lets a
+ * query touch only their events instead of every event in the calendar. Each attendee's times are
+ * also kept coalesced into {@link BusyBlocks}, so that a query only has to merge a few blocks per
+ * attendee however much their own events overlap. Indexes are read-only;
+ * {@link #plusAll} and {@link #minusAll} return a new index that shares every attendee the events
+ * don't involve.
+ */
+public final class AttendeeIndex {
+  private final Map<String, List<TimeRange>> busyTimes;
+  private final Map<String, BusyBlocks> busyBlocks;
+
+  private AttendeeIndex(
+      Map<String, List<TimeRange>> busyTimes, Map<String, BusyBlocks> busyBlocks) {
+    this.busyTimes = busyTimes;
+    this.busyBlocks = busyBlocks;
+  }
+
+  /**
+   * Builds an index over {@code events}. Every attendee of an event is considered busy for the
+   * whole of {@link Event#getWhen()}.
+   */
+  public static AttendeeIndex of(Collection<Event> events) {
+    Map<String, List<TimeRange>> busyTimes = new HashMap<>();
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        List<TimeRange> times = busyTimes.get(attendee);
+        if (times == null) {
+          times = new ArrayList<>();
+          busyTimes.put(attendee, times);
+        }
+        times.add(event.getWhen());
+      }
+    }
+
+    // Sort each list and coalesce it once here so that queries only have to merge blocks.
+    Map<String, BusyBlocks> busyBlocks = new HashMap<>();
+    for (Map.Entry<String, List<TimeRange>> entry : busyTimes.entrySet()) {
+      List<TimeRange> times = entry.getValue();
+      Collections.sort(times, TimeRange.ORDER_BY_START);
+      entry.setValue(Collections.unmodifiableList(times));
+      busyBlocks.put(entry.getKey(), BusyBlocks.of(times));
+    }
+
+    return new AttendeeIndex(busyTimes, busyBlocks);
+  }
+
+  /**
+   * Returns a new index that also holds {@code event}. Only the lists of the event's attendees are
+   * copied.
+   */
+  public AttendeeIndex plus(Event event) {
+    return plusAll(Collections.singletonList(event));
+  }
+
+  /**
+   * Returns a new index that also holds every event in {@code events}. The maps are copied once
+   * for the whole batch and each attendee's list at most once, so adding n events costs one copy
+   * of the index rather than n.
+   */
+  public AttendeeIndex plusAll(Collection<Event> events) {
+    Map<String, List<TimeRange>> touched = new HashMap<>();
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      for (String attendee : event.getAttendees()) {
+        List<TimeRange> times = touched.get(attendee);
+        if (times == null) {
+          times = new ArrayList<>(getBusyTimes(attendee));
+          touched.put(attendee, times);
+        }
+        times.add(when);
+      }
+    }
+    if (touched.isEmpty()) {
+      return this;
+    }
+
+    Map<String, List<TimeRange>> updated = new HashMap<>(busyTimes);
+    Map<String, BusyBlocks> updatedBlocks = new HashMap<>(busyBlocks);
+    for (Map.Entry<String, List<TimeRange>> entry : touched.entrySet()) {
+      // The sort is stable, so ranges with the same start stay in the order they were added.
+      List<TimeRange> times = entry.getValue();
+      Collections.sort(times, TimeRange.ORDER_BY_START);
+      updated.put(entry.getKey(), Collections.unmodifiableList(times));
+      updatedBlocks.put(entry.getKey(), BusyBlocks.of(times));
+    }
+    return new AttendeeIndex(updated, updatedBlocks);
+  }
+
+  /**
+   * Returns a new index without {@code event}. Only the lists of the event's attendees are copied.
+   * Attendees left without any busy times are dropped from the index.
+   */
+  public AttendeeIndex minus(Event event) {
+    return minusAll(Collections.singletonList(event));
+  }
+
+  /**
+   * Returns a new index without any of {@code events}, removing one copy of each. As with
+   * {@link #plusAll}, the maps are copied once for the whole batch. Attendees left without any
+   * busy times are dropped from the index.
+   */
+  public AttendeeIndex minusAll(Collection<Event> events) {
+    Map<String, List<TimeRange>> touched = new HashMap<>();
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        List<TimeRange> times = touched.get(attendee);
+        if (times == null) {
+          times = new ArrayList<>(getBusyTimes(attendee));
+          touched.put(attendee, times);
+        }
+        times.remove(event.getWhen());
+      }
+    }
+    if (touched.isEmpty()) {
+      return this;
+    }
+
+    Map<String, List<TimeRange>> updated = new HashMap<>(busyTimes);
+    Map<String, BusyBlocks> updatedBlocks = new HashMap<>(busyBlocks);
+    for (Map.Entry<String, List<TimeRange>> entry : touched.entrySet()) {
+      List<TimeRange> times = entry.getValue();
+      if (times.isEmpty()) {
+        updated.remove(entry.getKey());
+        updatedBlocks.remove(entry.getKey());
+      } else {
+        updated.put(entry.getKey(), Collections.unmodifiableList(times));
+        // Other events may still cover part of the removed ones, so rebuild from what is left.
+        updatedBlocks.put(entry.getKey(), BusyBlocks.of(times));
+      }
+    }
+    return new AttendeeIndex(updated, updatedBlocks);
+  }
+
+  /**
+   * Returns a read-only list of the times {@code attendee} is busy, sorted by start time. People
+   * the index knows nothing about are never busy.
+   */
+  public List<TimeRange> getBusyTimes(String attendee) {
+    List<TimeRange> times = busyTimes.get(attendee);
+    return times == null ? Collections.<TimeRange>emptyList() : times;
+  }
+
+  /**
+   * Returns the union of the times {@code attendee} is busy.
+   */
+  public BusyBlocks getBusyBlocks(String attendee) {
+    BusyBlocks blocks = busyBlocks.get(attendee);
+    return blocks == null ? BusyBlocks.EMPTY : blocks;
+  }
+
+  /**
+   * Returns a read-only set of every attendee that has at least one event in the index.
+   */
+  public Set<String> getAttendees() {
+    return Collections.unmodifiableSet(busyTimes.keySet());
+  }
+}
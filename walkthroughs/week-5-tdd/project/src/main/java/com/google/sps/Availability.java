@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * How many of a group of attendees are free at each minute of the day. Every attendee's coalesced
+ * busy blocks add one at their start and take one away at their end in a difference array, and a
+ * single prefix sum over the day turns that into busy counts. The cost is linear in the attendees'
+ * blocks plus the length of the day, so thousands of attendees cost little more than one.
+ */
+public final class Availability {
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  private final int attendeeCount;
+  private final int[] free;
+
+  private Availability(int attendeeCount, int[] free) {
+    this.attendeeCount = attendeeCount;
+    this.free = free;
+  }
+
+  /**
+   * Counts the free attendees of {@code events} among {@code attendees} at every minute.
+   */
+  public static Availability of(Collection<Event> events, Collection<String> attendees) {
+    return of(AttendeeIndex.of(events), attendees);
+  }
+
+  /**
+   * Counts the free attendees among {@code attendees} at every minute. People named more than once
+   * are only counted once.
+   */
+  public static Availability of(AttendeeIndex index, Collection<String> attendees) {
+    Set<String> distinct = new LinkedHashSet<>(attendees);
+
+    // Extra slot so that a block ending at the end of the day can still be closed off.
+    int[] busy = new int[MINUTES_PER_DAY + 1];
+    for (String attendee : distinct) {
+      // Blocks never overlap, so nobody is counted twice for the same minute.
+      for (long block : index.getBusyBlocks(attendee).packed()) {
+        int start = Math.max(PackedMeetingQuery.start(block), 0);
+        int end = Math.min(PackedMeetingQuery.end(block), MINUTES_PER_DAY);
+        if (start < end) {
+          busy[start]++;
+          busy[end]--;
+        }
+      }
+    }
+
+    int[] free = new int[MINUTES_PER_DAY];
+    int busyNow = 0;
+    for (int minute = 0; minute < MINUTES_PER_DAY; ++minute) {
+      busyNow += busy[minute];
+      free[minute] = distinct.size() - busyNow;
+    }
+    return new Availability(distinct.size(), free);
+  }
+
+  /**
+   * Returns the number of distinct attendees that were counted.
+   */
+  public int getAttendeeCount() {
+    return attendeeCount;
+  }
+
+  /**
+   * Returns how many attendees are free during {@code minute} of the day.
+   */
+  public int getFree(int minute) {
+    return free[minute];
+  }
+
+  /**
+   * Returns a copy of the free counts, indexed by minute of the day.
+   */
+  public int[] toArray() {
+    return free.clone();
+  }
+}
@@ -0,0 +1,276 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of when each attendee is busy, stored as one bit per minute of the day. Finding openings
+ * for a request is then a bitwise OR of the attendees' bitmaps followed by a scan for runs of free
+ * minutes. Bitmaps are read-only; {@link #plusAll} and {@link #minusAll} return a new cache that
+ * only rebuilds the bitmaps of the events' attendees.
+ */
+public final class BusyBitmaps {
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+  private static final int WORDS_PER_DAY = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+  private final AttendeeIndex index;
+  private final Map<String, long[]> bitmaps;
+
+  // Attendees with an event that takes no time. A bitmap can't hold one, but the sweep still lets
+  // it split a gap in two, so requests involving these attendees are answered from the index.
+  private final Set<String> emptyEvents;
+
+  private BusyBitmaps(AttendeeIndex index, Map<String, long[]> bitmaps, Set<String> emptyEvents) {
+    this.index = index;
+    this.bitmaps = bitmaps;
+    this.emptyEvents = emptyEvents;
+  }
+
+  /**
+   * Builds a bitmap for every attendee of {@code events}.
+   */
+  public static BusyBitmaps of(Collection<Event> events) {
+    AttendeeIndex index = AttendeeIndex.of(events);
+    Map<String, long[]> bitmaps = new HashMap<>();
+    Set<String> emptyEvents = new HashSet<>();
+    for (String attendee : index.getAttendees()) {
+      BusyBlocks blocks = index.getBusyBlocks(attendee);
+      bitmaps.put(attendee, toBitmap(blocks));
+      if (hasEmptyBlock(blocks)) {
+        emptyEvents.add(attendee);
+      }
+    }
+    return new BusyBitmaps(index, bitmaps, emptyEvents);
+  }
+
+  /**
+   * Returns a new cache that also holds {@code event}. Only the event's attendees are updated.
+   */
+  public BusyBitmaps plus(Event event) {
+    return plusAll(Collections.singletonList(event));
+  }
+
+  /**
+   * Returns a new cache that also holds every event in {@code events}. The map of bitmaps is copied
+   * once for the whole batch and each attendee's bitmap at most once.
+   */
+  public BusyBitmaps plusAll(Collection<Event> events) {
+    Map<String, long[]> touched = new HashMap<>();
+    Set<String> updatedEmptyEvents = emptyEvents;
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      if (when.duration() == 0 && !updatedEmptyEvents.containsAll(event.getAttendees())) {
+        if (updatedEmptyEvents == emptyEvents) {
+          updatedEmptyEvents = new HashSet<>(emptyEvents);
+        }
+        updatedEmptyEvents.addAll(event.getAttendees());
+      }
+      for (String attendee : event.getAttendees()) {
+        long[] bits = touched.get(attendee);
+        if (bits == null) {
+          bits = bitmaps.get(attendee);
+          bits = bits == null ? new long[WORDS_PER_DAY] : bits.clone();
+          touched.put(attendee, bits);
+        }
+        setRange(bits, when.start(), when.end());
+      }
+    }
+    if (touched.isEmpty()) {
+      return this;
+    }
+
+    Map<String, long[]> updated = new HashMap<>(bitmaps);
+    updated.putAll(touched);
+    return new BusyBitmaps(index.plusAll(events), updated, updatedEmptyEvents);
+  }
+
+  /**
+   * Returns a new cache without {@code event}. The event's attendees may still be busy during it
+   * because of other events, so their bitmaps are rebuilt from their remaining busy times.
+   */
+  public BusyBitmaps minus(Event event) {
+    return minusAll(Collections.singletonList(event));
+  }
+
+  /**
+   * Returns a new cache without any of {@code events}, removing one copy of each. The map of
+   * bitmaps is copied once and each affected attendee's bitmap is rebuilt once.
+   */
+  public BusyBitmaps minusAll(Collection<Event> events) {
+    Set<String> touched = new HashSet<>();
+    for (Event event : events) {
+      touched.addAll(event.getAttendees());
+    }
+    if (touched.isEmpty()) {
+      return this;
+    }
+
+    AttendeeIndex updatedIndex = index.minusAll(events);
+    Map<String, long[]> updated = new HashMap<>(bitmaps);
+    Set<String> updatedEmptyEvents = emptyEvents;
+    for (String attendee : touched) {
+      BusyBlocks blocks = updatedIndex.getBusyBlocks(attendee);
+      if (blocks.size() == 0) {
+        updated.remove(attendee);
+      } else {
+        updated.put(attendee, toBitmap(blocks));
+      }
+      if (emptyEvents.contains(attendee) && !hasEmptyBlock(blocks)) {
+        if (updatedEmptyEvents == emptyEvents) {
+          updatedEmptyEvents = new HashSet<>(emptyEvents);
+        }
+        updatedEmptyEvents.remove(attendee);
+      }
+    }
+    return new BusyBitmaps(updatedIndex, updated, updatedEmptyEvents);
+  }
+
+  /**
+   * Returns the index the bitmaps were built from.
+   */
+  public AttendeeIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns every opening in the day where all of the request's attendees are free for at least
+   * the requested duration. Optional attendees are not considered.
+   */
+  public Collection<TimeRange> query(MeetingRequest request) {
+    long startNanos = System.nanoTime();
+    int duration = (int) request.getDuration();
+
+    // If request is longer than length of day, then there would never be any options
+    if (duration > MINUTES_PER_DAY) {
+      return Arrays.asList();
+    }
+
+    if (!emptyEvents.isEmpty() && !Collections.disjoint(emptyEvents, request.getAttendees())) {
+      return new FindMeetingQuery().query(index, request);
+    }
+
+    long[] busy = new long[WORDS_PER_DAY];
+    for (String attendee : request.getAttendees()) {
+      long[] bits = bitmaps.get(attendee);
+      if (bits != null) {
+        for (int word = 0; word < WORDS_PER_DAY; ++word) {
+          busy[word] |= bits[word];
+        }
+      }
+    }
+
+    List<TimeRange> openings = new ArrayList<>();
+    int freeStart = nextClearBit(busy, 0);
+    while (freeStart < MINUTES_PER_DAY) {
+      int freeEnd = nextSetBit(busy, freeStart);
+      // A gap that runs to the end of the day follows the same rule as on every other path.
+      boolean fits = freeEnd < MINUTES_PER_DAY || freeStart == 0
+          ? freeEnd - freeStart >= duration
+          : PackedMeetingQuery.lastGapFits(freeStart, duration);
+      if (fits) {
+        openings.add(TimeRange.fromStartEnd(freeStart, freeEnd, false));
+      }
+      freeStart = nextClearBit(busy, freeEnd);
+    }
+
+    QueryMetrics.global().recordQuery(
+        QueryMetrics.Path.BITMAPS, System.nanoTime() - startNanos, openings.size());
+    return openings;
+  }
+
+  private static boolean hasEmptyBlock(BusyBlocks blocks) {
+    for (long block : blocks.packed()) {
+      if (PackedMeetingQuery.start(block) == PackedMeetingQuery.end(block)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long[] toBitmap(BusyBlocks blocks) {
+    long[] bits = new long[WORDS_PER_DAY];
+    for (long block : blocks.packed()) {
+      setRange(bits, PackedMeetingQuery.start(block), PackedMeetingQuery.end(block));
+    }
+    return bits;
+  }
+
+  // Sets the bits for every minute in [from, to), ignoring any part outside of the day.
+  private static void setRange(long[] bits, int from, int to) {
+    from = Math.max(from, 0);
+    to = Math.min(to, MINUTES_PER_DAY);
+    if (from >= to) {
+      return;
+    }
+
+    int firstWord = from >>> 6;
+    int lastWord = (to - 1) >>> 6;
+    long firstMask = -1L << from;
+    long lastMask = -1L >>> -to;
+    if (firstWord == lastWord) {
+      bits[firstWord] |= firstMask & lastMask;
+      return;
+    }
+
+    bits[firstWord] |= firstMask;
+    for (int word = firstWord + 1; word < lastWord; ++word) {
+      bits[word] = -1L;
+    }
+    bits[lastWord] |= lastMask;
+  }
+
+  // Returns the first busy minute at or after from, or the end of the day if there is none.
+  private static int nextSetBit(long[] bits, int from) {
+    int word = from >>> 6;
+    if (word >= WORDS_PER_DAY) {
+      return MINUTES_PER_DAY;
+    }
+
+    long current = bits[word] & (-1L << from);
+    while (current == 0) {
+      if (++word == WORDS_PER_DAY) {
+        return MINUTES_PER_DAY;
+      }
+      current = bits[word];
+    }
+    return Math.min(word * Long.SIZE + Long.numberOfTrailingZeros(current), MINUTES_PER_DAY);
+  }
+
+  // Returns the first free minute at or after from, or the end of the day if there is none.
+  private static int nextClearBit(long[] bits, int from) {
+    int word = from >>> 6;
+    if (word >= WORDS_PER_DAY) {
+      return MINUTES_PER_DAY;
+    }
+
+    long current = ~bits[word] & (-1L << from);
+    while (current == 0) {
+      if (++word == WORDS_PER_DAY) {
+        return MINUTES_PER_DAY;
+      }
+      current = ~bits[word];
+    }
+    return Math.min(word * Long.SIZE + Long.numberOfTrailingZeros(current), MINUTES_PER_DAY);
+  }
+}
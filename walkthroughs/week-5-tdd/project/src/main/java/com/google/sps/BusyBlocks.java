@@ -0,0 +1,172 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorted, non-overlapping blocks of busy time, made by taking the union of a set of ranges. Ranges
+ * that overlap in any way, including ranges that start at the same minute, are coalesced into one
+ * block, so finding the openings afterwards is a single pass over the gaps. Blocks are read-only,
+ * so one set can be cached and shared by any number of queries.
+ *
+ * <p>Blocks that only touch end to end are kept apart, as are zero-length ranges that don't fall
+ * inside another range. That way the openings around the blocks are exactly the ones
+ * {@link FindMeetingQuery} has always returned.
+ */
+public final class BusyBlocks {
+  /** No busy time at all. */
+  public static final BusyBlocks EMPTY = new BusyBlocks(new long[0]);
+
+  // Each block is packed with PackedMeetingQuery.pack.
+  private final long[] blocks;
+
+  private BusyBlocks(long[] blocks) {
+    this.blocks = blocks;
+  }
+
+  /**
+   * Returns the union of {@code ranges}, which can be in any order. This takes O(n log n) time.
+   */
+  public static BusyBlocks of(Collection<TimeRange> ranges) {
+    long[] packed = new long[ranges.size()];
+    int count = 0;
+    for (TimeRange range : ranges) {
+      packed[count++] = PackedMeetingQuery.pack(range.start(), range.end());
+    }
+    Arrays.sort(packed);
+    return new BusyBlocks(coalesce(packed, count));
+  }
+
+  /**
+   * Returns the union of every set of blocks in {@code parts}.
+   */
+  public static BusyBlocks union(Collection<BusyBlocks> parts) {
+    if (parts.size() == 1) {
+      return parts.iterator().next();
+    }
+
+    int count = 0;
+    for (BusyBlocks part : parts) {
+      count += part.blocks.length;
+    }
+
+    // Sorting the concatenated runs is quicker in practice than a k-way merge, since the runs are
+    // already sorted and the sort works on primitives.
+    long[] packed = new long[count];
+    count = 0;
+    for (BusyBlocks part : parts) {
+      System.arraycopy(part.blocks, 0, packed, count, part.blocks.length);
+      count += part.blocks.length;
+    }
+    Arrays.sort(packed);
+    return new BusyBlocks(coalesce(packed, count));
+  }
+
+  /**
+   * Returns the union of these blocks and {@code other} in one linear pass.
+   */
+  public BusyBlocks merge(BusyBlocks other) {
+    return new BusyBlocks(merge(blocks, other.blocks));
+  }
+
+  /**
+   * Returns every opening of at least {@code duration} minutes between the blocks.
+   */
+  public List<TimeRange> findOpenings(int duration) {
+    return PackedMeetingQuery.findOpenings(blocks, blocks.length, duration);
+  }
+
+  /**
+   * Returns the blocks in order.
+   */
+  public List<TimeRange> getBlocks() {
+    List<TimeRange> ranges = new ArrayList<>(blocks.length);
+    for (long block : blocks) {
+      ranges.add(TimeRange.fromStartEnd(
+          PackedMeetingQuery.start(block), PackedMeetingQuery.end(block), false));
+    }
+    return Collections.unmodifiableList(ranges);
+  }
+
+  /**
+   * Returns the number of blocks.
+   */
+  public int size() {
+    return blocks.length;
+  }
+
+  /**
+   * Returns the packed blocks. The array must not be modified.
+   */
+  long[] packed() {
+    return blocks;
+  }
+
+  /**
+   * Coalesces the first {@code count} packed ranges of {@code sorted} into blocks.
+   */
+  static long[] coalesce(long[] sorted, int count) {
+    // The blocks can be written over the ranges, since there are never more blocks than ranges.
+    int blockCount = 0;
+    for (int i = 0; i < count; ++i) {
+      blockCount = append(sorted, blockCount, sorted[i]);
+    }
+    return Arrays.copyOf(sorted, blockCount);
+  }
+
+  /**
+   * Merges two sorted arrays of packed blocks into one.
+   */
+  static long[] merge(long[] left, long[] right) {
+    long[] merged = new long[left.length + right.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < left.length || j < right.length) {
+      long next;
+      if (j == right.length || (i < left.length && left[i] <= right[j])) {
+        next = left[i++];
+      } else {
+        next = right[j++];
+      }
+      count = append(merged, count, next);
+    }
+    return Arrays.copyOf(merged, count);
+  }
+
+  // Adds range to the sorted blocks, growing the last block if range starts inside it. Returns the
+  // new number of blocks.
+  private static int append(long[] blocks, int count, long range) {
+    if (count > 0) {
+      long last = blocks[count - 1];
+      int lastEnd = PackedMeetingQuery.end(last);
+      int end = PackedMeetingQuery.end(range);
+      if (end <= lastEnd) {
+        return count;
+      }
+      if (PackedMeetingQuery.start(range) < lastEnd) {
+        blocks[count - 1] = PackedMeetingQuery.pack(PackedMeetingQuery.start(last), end);
+        return count;
+      }
+    }
+    blocks[count] = range;
+    return count + 1;
+  }
+}
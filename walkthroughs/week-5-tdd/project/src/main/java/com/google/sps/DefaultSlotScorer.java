@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Prefers slots that start early, that more optional attendees can make, and that are far from
+ * lunch. Each of the three parts scores between 0 and its weight, and the score is their sum.
+ * Weights may be negative to prefer the opposite, such as late slots or slots near lunch.
+ */
+public final class DefaultSlotScorer implements SlotScorer {
+  public static final TimeRange LUNCH =
+      TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(12, 0), TimeRange.getTimeInMinutes(13, 0),
+          false);
+
+  // Slots this far from lunch or further get the whole lunch weight.
+  private static final int FAR_FROM_LUNCH = 120;
+
+  private final double earlyWeight;
+  private final double optionalWeight;
+  private final double lunchWeight;
+
+  public DefaultSlotScorer() {
+    this(1, 2, 1);
+  }
+
+  public DefaultSlotScorer(double earlyWeight, double optionalWeight, double lunchWeight) {
+    this.earlyWeight = earlyWeight;
+    this.optionalWeight = optionalWeight;
+    this.lunchWeight = lunchWeight;
+  }
+
+  @Override
+  public double score(TimeRange when, int optionalAttendees, int totalOptionalAttendees) {
+    double optionalShare =
+        totalOptionalAttendees == 0 ? 1 : (double) optionalAttendees / totalOptionalAttendees;
+    return earliness(when.start()) + optionalWeight * optionalShare
+        + lunchWeight * Math.min(distanceFromLunch(when), FAR_FROM_LUNCH) / FAR_FROM_LUNCH;
+  }
+
+  @Override
+  public double bestScoreFrom(int start, int duration, int totalOptionalAttendees) {
+    // Each part is best at one end of its range, and which end depends on the sign of its weight.
+    // Later slots can't start any earlier, but with a negative weight starting later is better.
+    return Math.max(earliness(start), earliness(TimeRange.WHOLE_DAY.duration()))
+        + Math.max(optionalWeight, 0) + Math.max(lunchWeight, 0);
+  }
+
+  private double earliness(int start) {
+    return earlyWeight * (1 - (double) start / TimeRange.WHOLE_DAY.duration());
+  }
+
+  private static int distanceFromLunch(TimeRange when) {
+    if (when.end() <= LUNCH.start()) {
+      return LUNCH.start() - when.end();
+    }
+    if (when.start() >= LUNCH.end()) {
+      return when.start() - LUNCH.end();
+    }
+    return 0;
+  }
+}
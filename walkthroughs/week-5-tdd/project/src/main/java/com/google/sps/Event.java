@@ -14,9 +14,8 @@
 
 package com.google.sps;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -26,7 +25,9 @@ import java.util.Set;
 public final class Event {
   private final String title;
   private final TimeRange when;
-  private final Set<String> attendees = new HashSet<>();
+  // Sorted IDs from the global AttendeeDictionary. Much smaller than a set of names when there are
+  // millions of events, and quick to intersect with a request's attendees.
+  private final int[] attendeeIds;
 
   /**
    * Creates a new event.
@@ -50,7 +51,7 @@ public final class Event {
 
     this.title = title;
     this.when = when;
-    this.attendees.addAll(attendees);
+    this.attendeeIds = AttendeeDictionary.global().intern(attendees);
   }
 
   /**
@@ -71,9 +72,16 @@ public final class Event {
    * Returns a read-only set of required attendees for this event.
    */
   public Set<String> getAttendees() {
-    // Return the attendees as an unmodifiable set so that the caller can't change our
-    // internal data.
-    return Collections.unmodifiableSet(attendees);
+    // The set is a view over our IDs, so the caller can't change our internal data.
+    return new AttendeeSet(attendeeIds);
+  }
+
+  /**
+   * Returns the sorted IDs of the attendees in the global {@code AttendeeDictionary}. The array
+   * must not be modified.
+   */
+  int[] getAttendeeIds() {
+    return attendeeIds;
   }
 
   @Override
@@ -89,8 +97,9 @@ public final class Event {
   }
 
   private static boolean equals(Event a, Event b) {
-    // {@code attendees} must be a set for equals to work as expected. According to the {@code Set}
-    // interface documentation, equals will check for set-equality across all set implementations.
-    return a.title.equals(b.title) && a.when.equals(b.when) && a.attendees.equals(b.attendees);
+    // Every event uses the same dictionary and keeps its IDs sorted without duplicates, so equal
+    // arrays mean equal sets of attendees.
+    return a.title.equals(b.title) && a.when.equals(b.when)
+        && Arrays.equals(a.attendeeIds, b.attendeeIds);
   }
 }
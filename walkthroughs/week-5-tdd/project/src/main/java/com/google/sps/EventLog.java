@@ -0,0 +1,540 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps an {@link EventStore} on disk as a compact binary snapshot plus a write-ahead log of every
+ * change made since. On startup {@link #recover} loads the snapshot and replays the rest of the
+ * log, which is much faster than parsing the calendar's JSON. {@link #checkpoint} writes a new
+ * snapshot and drops the part of the log it covers, so it should be called now and then to keep
+ * startup quick.
+ *
+ * <p>Each log record holds one version: {@code [length][CRC-32][version][added][removed]}. A crash
+ * can leave a partly written record at the end of the log; it fails its checksum and is cut off
+ * when the log is recovered. Writers queue their records and a dedicated writer thread writes
+ * everything queued so far and syncs it with a single {@code force}, so changes made at the same
+ * time share one sync instead of paying for one each. Doing every write on that thread also means
+ * that interrupting a caller can't close the log under everyone else, which is what a
+ * {@code FileChannel} does when a thread blocked on it is interrupted.
+ *
+ * <p>Once a write fails the log takes no more records, since it could no longer replay the
+ * versions in order. The store then rejects every change before publishing it.
+ */
+public final class EventLog implements Closeable {
+  private static final String SNAPSHOT_FILE = "events.snapshot";
+  private static final String LOG_FILE = "events.log";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+
+  // Marks the start of a snapshot file, so that a stray file isn't loaded as one.
+  private static final int SNAPSHOT_MAGIC = 0x53505345;
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+  private final Path directory;
+  private final Object lock = new Object();
+
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "event-log-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Only touched on the writer thread once the log has been recovered.
+  private FileChannel channel;
+
+  // Guarded by lock.
+  private List<ByteBuffer> queued = new ArrayList<>();
+  private long lastTicket;
+  private long lastDurableTicket;
+  private boolean flushScheduled;
+  private boolean closed;
+  private IOException failure;
+
+  private volatile EventStore store;
+
+  private EventLog(Path directory, FileChannel channel) {
+    this.directory = directory;
+    this.channel = channel;
+  }
+
+  /**
+   * Opens the log kept in {@code directory}, creating the directory if needed.
+   */
+  public static EventLog open(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    FileChannel channel = FileChannel.open(directory.resolve(LOG_FILE),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    return new EventLog(directory, channel);
+  }
+
+  /**
+   * Loads the latest snapshot, or {@code seed} as version 0 if there isn't one yet, replays the
+   * log on top of it and returns a store that writes its changes to this log. Call this once,
+   * before anything else.
+   */
+  public EventStore recover(Collection<Event> seed) throws IOException {
+    if (store != null) {
+      throw new IllegalStateException("The log has already been recovered");
+    }
+
+    long version = 0;
+    List<Event> events = new ArrayList<>(seed);
+
+    Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+    if (Files.exists(snapshotFile)) {
+      try (FileChannel snapshotChannel = FileChannel.open(snapshotFile)) {
+        ByteBuffer buffer =
+            snapshotChannel.map(FileChannel.MapMode.READ_ONLY, 0, snapshotChannel.size());
+        if (buffer.remaining() < Integer.BYTES || buffer.getInt() != SNAPSHOT_MAGIC) {
+          throw new IOException(snapshotFile + " is not an event snapshot");
+        }
+        version = buffer.getLong();
+        events = readEvents(buffer);
+      }
+    }
+
+    List<List<Event>> addedByVersion = new ArrayList<>();
+    List<List<Event>> removedByVersion = new ArrayList<>();
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    while (true) {
+      int recordStart = buffer.position();
+      ByteBuffer record = nextRecord(buffer);
+      if (record == null) {
+        // Drop whatever a crash left behind so that new records follow the last good one.
+        channel.truncate(recordStart);
+        channel.position(recordStart);
+        break;
+      }
+
+      long recordVersion = record.getLong();
+      if (recordVersion <= version) {
+        // Already part of the snapshot.
+        continue;
+      }
+      if (recordVersion != version + 1) {
+        throw new IOException(
+            "The log jumps from version " + version + " to version " + recordVersion);
+      }
+
+      addedByVersion.add(readEvents(record));
+      removedByVersion.add(readEvents(record));
+      version = recordVersion;
+    }
+
+    events = replay(events, addedByVersion, removedByVersion);
+    store = new EventStore(EventStore.snapshotOf(version, events), this);
+    return store;
+  }
+
+  /**
+   * Applies each version's removals and then its additions to {@code events}, the same way
+   * {@link EventStore#apply} does: a removal takes out the earliest copy still there. Since copies
+   * go in the order they were added and come out in that same order, the removed copies of an
+   * event are always its first few. So this only counts them while replaying, and drops them in a
+   * single pass at the end, rather than searching the whole list for every removal.
+   */
+  private static List<Event> replay(List<Event> events, List<List<Event>> addedByVersion,
+      List<List<Event>> removedByVersion) {
+    // For each removed event, how many copies are there right now and how many were removed.
+    Map<Event, int[]> counts = new HashMap<>();
+    for (List<Event> removed : removedByVersion) {
+      for (Event event : removed) {
+        counts.put(event, new int[2]);
+      }
+    }
+    addCopies(counts, events);
+    for (int i = 0; i < addedByVersion.size(); ++i) {
+      for (Event event : removedByVersion.get(i)) {
+        int[] count = counts.get(event);
+        if (count[0] > 0) {
+          count[0]--;
+          count[1]++;
+        }
+      }
+      addCopies(counts, addedByVersion.get(i));
+    }
+
+    List<Event> replayed = new ArrayList<>(events.size());
+    keepUnremoved(counts, events, replayed);
+    for (List<Event> added : addedByVersion) {
+      keepUnremoved(counts, added, replayed);
+    }
+    return replayed;
+  }
+
+  private static void addCopies(Map<Event, int[]> counts, List<Event> events) {
+    for (Event event : events) {
+      int[] count = counts.get(event);
+      if (count != null) {
+        count[0]++;
+      }
+    }
+  }
+
+  private static void keepUnremoved(Map<Event, int[]> counts, List<Event> events,
+      List<Event> kept) {
+    for (Event event : events) {
+      int[] count = counts.get(event);
+      if (count != null && count[1] > 0) {
+        count[1]--;
+      } else {
+        kept.add(event);
+      }
+    }
+  }
+
+  /**
+   * Writes a snapshot of the recovered store and drops the records it covers from the log.
+   * Writers can keep changing the store while this runs.
+   */
+  public void checkpoint() throws IOException {
+    EventStore current = store;
+    if (current == null) {
+      throw new IllegalStateException("The log has not been recovered yet");
+    }
+
+    EventStore.Snapshot snapshot = current.snapshot();
+    writeSnapshot(snapshot);
+
+    // Rewrite the log on the writer thread, between two flushes. Records keep queuing up
+    // meanwhile and are flushed to the new file afterwards.
+    Future<?> trim;
+    synchronized (lock) {
+      if (closed) {
+        throw new ClosedChannelException();
+      }
+      trim = writer.submit(() -> {
+        trimLog(snapshot.getVersion());
+        return null;
+      });
+    }
+    await(trim);
+  }
+
+  /**
+   * Waits for every queued record to be written, then closes the log.
+   */
+  @Override
+  public void close() throws IOException {
+    Future<?> closing;
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closing = writer.submit(() -> {
+        flush();
+        channel.close();
+        return null;
+      });
+    }
+
+    try {
+      await(closing);
+    } finally {
+      writer.shutdown();
+    }
+
+    synchronized (lock) {
+      if (lastDurableTicket < lastTicket) {
+        throw new IOException("Some changes could not be written to the event log", failure);
+      }
+    }
+  }
+
+  /**
+   * Queues the record for {@code version} and returns a ticket to pass to {@link #sync}. Records
+   * must be queued in version order.
+   *
+   * @throws IOException if the log is closed or an earlier write failed. Nothing is queued.
+   */
+  long append(long version, Collection<Event> added, Collection<Event> removed)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeLong(version);
+      writeEvents(out, added);
+      writeEvents(out, removed);
+    } catch (IOException e) {
+      // Writing to memory never fails.
+      throw new AssertionError(e);
+    }
+
+    byte[] payload = bytes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+    record.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+    record.flip();
+
+    synchronized (lock) {
+      if (closed) {
+        throw new ClosedChannelException();
+      }
+      if (failure != null) {
+        throw new IOException("An earlier write to the event log failed", failure);
+      }
+      queued.add(record);
+      return ++lastTicket;
+    }
+  }
+
+  /**
+   * Returns once the record with {@code ticket}, and every record queued before it, is on disk.
+   * Interrupting the caller stops the wait, but not the write.
+   */
+  void sync(long ticket) throws IOException {
+    synchronized (lock) {
+      // A flush that is scheduled but hasn't started yet will pick up our record too.
+      if (lastDurableTicket < ticket && !flushScheduled && !closed && failure == null) {
+        flushScheduled = true;
+        writer.execute(this::flush);
+      }
+      while (lastDurableTicket < ticket) {
+        if (failure != null) {
+          throw new IOException("Could not write to the event log", failure);
+        }
+        waitForFlush();
+      }
+    }
+  }
+
+  // Runs on the writer thread. Writes everything queued so far.
+  private void flush() {
+    List<ByteBuffer> batch;
+    long batchTicket;
+    synchronized (lock) {
+      flushScheduled = false;
+      if (queued.isEmpty() || failure != null) {
+        return;
+      }
+      batch = queued;
+      batchTicket = lastTicket;
+      queued = new ArrayList<>();
+    }
+
+    IOException error = null;
+    try {
+      write(batch);
+    } catch (IOException e) {
+      error = e;
+    }
+
+    synchronized (lock) {
+      if (error == null) {
+        lastDurableTicket = batchTicket;
+      } else {
+        failure = error;
+        // Nothing queued after the failure can be written in order, so don't hold on to it.
+        queued = new ArrayList<>();
+      }
+      lock.notifyAll();
+    }
+  }
+
+  private void write(List<ByteBuffer> batch) throws IOException {
+    ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+    long remaining = 0;
+    for (ByteBuffer buffer : buffers) {
+      remaining += buffer.remaining();
+    }
+    while (remaining > 0) {
+      remaining -= channel.write(buffers);
+    }
+    channel.force(false);
+  }
+
+  // Must be called while holding lock.
+  private void waitForFlush() throws InterruptedIOException {
+    try {
+      lock.wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the event log");
+    }
+  }
+
+  // Waits for a task on the writer thread. Interrupting the caller stops the wait, not the task.
+  private static void await(Future<?> task) throws IOException {
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the event log");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private void writeSnapshot(EventStore.Snapshot snapshot) throws IOException {
+    Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+    Path temporary = directory.resolve(SNAPSHOT_FILE + TEMPORARY_SUFFIX);
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      DataOutputStream data =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)));
+      data.writeInt(SNAPSHOT_MAGIC);
+      data.writeLong(snapshot.getVersion());
+      writeEvents(data, snapshot.getEvents());
+      data.flush();
+      out.force(true);
+    }
+
+    // Replace the old snapshot in one step so that a crash leaves one or the other.
+    Files.move(temporary, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // Runs on the writer thread.
+  private void trimLog(long version) throws IOException {
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    int keepFrom = buffer.limit();
+    while (true) {
+      int recordStart = buffer.position();
+      ByteBuffer record = nextRecord(buffer);
+      if (record == null) {
+        break;
+      }
+      if (record.getLong() > version) {
+        keepFrom = recordStart;
+        break;
+      }
+    }
+    buffer.position(keepFrom);
+
+    Path temporary = directory.resolve(LOG_FILE + TEMPORARY_SUFFIX);
+    FileChannel trimmed = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      while (buffer.hasRemaining()) {
+        trimmed.write(buffer);
+      }
+      trimmed.force(true);
+      Files.move(temporary, directory.resolve(LOG_FILE), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      trimmed.close();
+      throw e;
+    }
+
+    channel.close();
+    channel = trimmed;
+  }
+
+  /**
+   * Returns the payload of the record at the buffer's position and moves past it, or null if the
+   * rest of the buffer doesn't hold a whole, intact record.
+   */
+  private static ByteBuffer nextRecord(ByteBuffer buffer) {
+    if (buffer.remaining() < RECORD_HEADER_BYTES) {
+      return null;
+    }
+
+    int start = buffer.position();
+    int length = buffer.getInt();
+    int checksum = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      buffer.position(start);
+      return null;
+    }
+
+    ByteBuffer payload = buffer.slice();
+    payload.limit(length);
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+    if ((int) crc.getValue() != checksum) {
+      buffer.position(start);
+      return null;
+    }
+
+    buffer.position(buffer.position() + length);
+    return payload;
+  }
+
+  private static void writeEvents(DataOutputStream out, Collection<Event> events)
+      throws IOException {
+    out.writeInt(events.size());
+    for (Event event : events) {
+      writeString(out, event.getTitle());
+      out.writeInt(event.getWhen().start());
+      out.writeInt(event.getWhen().duration());
+      out.writeInt(event.getAttendees().size());
+      for (String attendee : event.getAttendees()) {
+        writeString(out, attendee);
+      }
+    }
+  }
+
+  private static List<Event> readEvents(ByteBuffer buffer) {
+    int count = buffer.getInt();
+    List<Event> events = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      String title = readString(buffer);
+      TimeRange when = TimeRange.fromStartDuration(buffer.getInt(), buffer.getInt());
+      int attendeeCount = buffer.getInt();
+      List<String> attendees = new ArrayList<>(attendeeCount);
+      for (int j = 0; j < attendeeCount; ++j) {
+        attendees.add(readString(buffer));
+      }
+      events.add(new Event(title, when, attendees));
+    }
+    return events;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,230 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory calendar that can change while the server is running. Every change produces a new,
+ * read-only {@link Snapshot} with the next version number. Readers grab the current snapshot
+ * without taking any lock and can keep using it for as long as they like, so a query always sees
+ * one consistent version of the calendar even while updates are being written. Writers take turns.
+ *
+ * <p>A store opened through {@link EventLog#recover} also writes every change to the log before
+ * returning it, so that it survives a restart.
+ */
+public final class EventStore {
+  private final EventLog log;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private volatile Snapshot current;
+
+  /**
+   * Creates a store holding {@code events} as version 0. The store only lives in memory.
+   */
+  public EventStore(Collection<Event> events) {
+    this(snapshotOf(0, events), null);
+  }
+
+  /**
+   * Creates a store starting at {@code initial} that writes its changes to {@code log}, if any.
+   */
+  EventStore(Snapshot initial, EventLog log) {
+    this.current = initial;
+    this.log = log;
+  }
+
+  /**
+   * Returns a snapshot holding {@code events} with the given version.
+   */
+  static Snapshot snapshotOf(long version, Collection<Event> events) {
+    List<Event> copy = new ArrayList<>(events);
+    return new Snapshot(version, Collections.unmodifiableList(copy), BusyBitmaps.of(copy));
+  }
+
+  /**
+   * Returns the latest version of the calendar. This never blocks.
+   */
+  public Snapshot snapshot() {
+    return current;
+  }
+
+  /**
+   * Calls {@code listener} for every change made from now on.
+   */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Adds {@code event} to the calendar and returns the new version.
+   */
+  public Snapshot add(Event event) {
+    return apply(Arrays.asList(event), Collections.<Event>emptyList());
+  }
+
+  /**
+   * Removes one copy of {@code event} from the calendar and returns the new version. If the
+   * calendar doesn't hold the event, nothing changes and the current version is returned.
+   */
+  public Snapshot remove(Event event) {
+    return apply(Collections.<Event>emptyList(), Arrays.asList(event));
+  }
+
+  /**
+   * Replaces {@code event} with {@code replacement} in a single version.
+   */
+  public Snapshot update(Event event, Event replacement) {
+    return apply(Arrays.asList(replacement), Arrays.asList(event));
+  }
+
+  /**
+   * Removes every event in {@code removed} and adds every event in {@code added} as one new
+   * version. Each version copies the list of events and the attendee maps once, so a feed of
+   * updates should be applied in batches rather than one event at a time.
+   *
+   * <p>If the store has a log, this returns once the change is on disk. Changes from several
+   * threads are flushed together, so they share the cost of syncing the log. The new version may
+   * be visible to readers slightly before it is durable.
+   *
+   * @throws UncheckedIOException if the change could not be written to the log. If the log had
+   *     already failed or been closed, the store is left unchanged. Otherwise the change is still
+   *     applied in memory, but may not survive a restart, and the log takes no further changes.
+   */
+  public Snapshot apply(Collection<Event> added, Collection<Event> removed) {
+    Snapshot next;
+    long ticket;
+    synchronized (this) {
+      Snapshot previous = current;
+
+      // Count the copies to remove so that the old list is walked once instead of searched once
+      // per removed event.
+      Map<Event, Integer> toRemove = new HashMap<>();
+      for (Event event : removed) {
+        toRemove.merge(event, 1, Integer::sum);
+      }
+
+      List<Event> events = new ArrayList<>(previous.events.size() + added.size());
+      List<Event> removedEvents = new ArrayList<>();
+      for (Event event : previous.events) {
+        Integer copies = toRemove.isEmpty() ? null : toRemove.get(event);
+        if (copies == null) {
+          events.add(event);
+        } else {
+          removedEvents.add(event);
+          if (copies == 1) {
+            toRemove.remove(event);
+          } else {
+            toRemove.put(event, copies - 1);
+          }
+        }
+      }
+      events.addAll(added);
+
+      if (added.isEmpty() && removedEvents.isEmpty()) {
+        return previous;
+      }
+
+      // Update the bitmaps and index once for the whole batch.
+      BusyBitmaps bitmaps = previous.bitmaps.minusAll(removedEvents).plusAll(added);
+      next = new Snapshot(previous.version + 1, Collections.unmodifiableList(events), bitmaps);
+      // Queue the record while holding the lock so that the log sees versions in order. If the
+      // log can't take it, give up before anyone sees the new version.
+      try {
+        ticket = log == null ? 0 : log.append(next.version, added, removedEvents);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not write version " + next.version, e);
+      }
+      // Tell listeners before publishing, so that nobody reads the new version before they know.
+      for (Listener listener : listeners) {
+        listener.changed(next.version, added, removedEvents);
+      }
+      current = next;
+    }
+
+    // Wait for the log outside of the lock so that other writers can join the same flush.
+    if (log != null) {
+      try {
+        log.sync(ticket);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not write version " + next.version, e);
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Gets told about every change to a store.
+   */
+  public interface Listener {
+    /**
+     * Called when {@code version} is created by adding {@code added} and removing {@code removed}.
+     * This runs while the store is locked for writing, so it must be quick and must not change
+     * the store.
+     */
+    void changed(long version, Collection<Event> added, Collection<Event> removed);
+  }
+
+  /**
+   * One version of the calendar. Snapshots never change.
+   */
+  public static final class Snapshot {
+    private final long version;
+    private final List<Event> events;
+    private final BusyBitmaps bitmaps;
+
+    private Snapshot(long version, List<Event> events, BusyBitmaps bitmaps) {
+      this.version = version;
+      this.events = events;
+      this.bitmaps = bitmaps;
+    }
+
+    /**
+     * Returns the version number. Each change to the store increases it by one.
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * Returns a read-only list of every event in this version.
+     */
+    public List<Event> getEvents() {
+      return events;
+    }
+
+    /**
+     * Returns everyone's busy bitmaps for this version.
+     */
+    public BusyBitmaps getBusyBitmaps() {
+      return bitmaps;
+    }
+
+    /**
+     * Returns the attendee index for this version.
+     */
+    public AttendeeIndex getIndex() {
+      return bitmaps.getIndex();
+    }
+  }
+}
@@ -15,15 +15,39 @@
 package com.google.sps;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Set;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 public final class FindMeetingQuery {
+  /**
+   * By default, requests with at least this many attendees use the parallel path of
+   * {@link #query(AttendeeIndex, MeetingRequest)}.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1000;
+
+  private final int parallelThreshold;
+
+  public FindMeetingQuery() {
+    this(DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Creates a query that answers indexed requests with at least {@code parallelThreshold}
+   * attendees on the fork-join pool.
+   */
+  public FindMeetingQuery(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+  }
+
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    long startNanos = System.nanoTime();
+
     // In this case, long to int conversion is safe because duration can never exceed 2^32. Leaving duration as long
     // leads to compile errors.
     int duration = (int) request.getDuration();
@@ -36,74 +60,196 @@ public final class FindMeetingQuery {
     // Seperate relevant TimeRanges from events, put into ArrayList and sort by ascending meeting start time
     List<TimeRange> attendedMeetings = new ArrayList<>();
     for (Event event : events) {
-      // First check if the event in question contains people from request, add those meetings to attendedMeetings
-      Set<String> attendees = new HashSet<>(request.getAttendees());
-      attendees.retainAll(event.getAttendees());
-
-      if (!attendees.isEmpty()){
+      // First check if the event in question contains people from request, add those meetings to attendedMeetings.
+      // Both keep their attendees as sorted IDs, so this is a merge rather than a set intersection.
+      if (AttendeeDictionary.intersects(event.getAttendeeIds(), request.getAttendeeIds())) {
         attendedMeetings.add(event.getWhen());
       }
     }
 
-    // Sort attendedMeetings so that we can filter out all nested meetings in next step
-    Collections.sort(attendedMeetings, TimeRange.ORDER_BY_START);
+    // Coalesce overlapping meetings into busy blocks; the openings are the gaps between them
+    List<TimeRange> openings = BusyBlocks.of(attendedMeetings).findOpenings(duration);
 
-    List<TimeRange> validMeetings = new ArrayList<>();
+    QueryMetrics.global().recordQuery(QueryMetrics.Path.EVENTS, System.nanoTime() - startNanos,
+        events.size(), attendedMeetings.size(), openings.size());
+    return openings;
+  }
+
+  /**
+   * Same as {@link #query(Collection, MeetingRequest)} for the day {@code epochDay} days after the
+   * epoch, where the calendar also holds {@code recurring} series. Only the series that involve a
+   * requested attendee are expanded, and only over that day.
+   */
+  public Collection<TimeRange> query(Collection<Event> events,
+      Collection<RecurringEvent> recurring, long epochDay, MeetingRequest request) {
+    List<Event> dayEvents = new ArrayList<>(events);
+    for (RecurringEvent event : recurring) {
+      if (!Collections.disjoint(event.getAttendees(), request.getAttendees())) {
+        dayEvents.addAll(event.eventsOn(epochDay));
+      }
+    }
+    return query(dayEvents, request);
+  }
+
+  /**
+   * Same as {@link #query(Collection, MeetingRequest)}, but looks up each attendee's busy times in
+   * {@code index} so that the cost depends on the attendees' own events rather than on the size of
+   * the whole calendar.
+   *
+   * <p>Requests with at least as many attendees as the parallel threshold are split into shards of
+   * attendees. Each shard's busy times are merged on the fork-join pool and the shards are then
+   * merged together. The openings are the same as with the sequential path.
+   */
+  public Collection<TimeRange> query(AttendeeIndex index, MeetingRequest request) {
+    return query(index, WorkingHoursMasks.NONE, request);
+  }
+
+  /**
+   * Same as {@link #query(AttendeeIndex, MeetingRequest)}, but only returns times when every
+   * attendee is also within their working hours. The masks are merged with the busy blocks like
+   * another attendee's calendar, and attendees that share working hours share one mask.
+   */
+  public Collection<TimeRange> query(
+      AttendeeIndex index, WorkingHoursMasks masks, MeetingRequest request) {
+    long startNanos = System.nanoTime();
+    int duration = (int) request.getDuration();
 
-    for (TimeRange meeting : attendedMeetings) {
-      
-      int numMeetings = validMeetings.size();
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return Arrays.asList();
+    }
 
-      // Fill in validMeetings. Meetings are sorted by start and end times. If multiple meetings
-      // start at the same time, then one or more will be added, with the longest always being kept
-      // and the shortest either being kept (if they come before the longest) or removed (if they come
-      // after the longest). These meetings will then be sorted out later.
-      if(numMeetings == 0 
-        || meeting.end() > validMeetings.get(numMeetings - 1).end()) {
-        validMeetings.add(meeting);
+    // Collect each distinct mask once.
+    Set<BusyBlocks> offHours = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (String attendee : request.getAttendees()) {
+      offHours.add(masks.getOffHours(attendee));
+    }
+
+    List<TimeRange> openings;
+    if (request.getAttendees().size() >= parallelThreshold) {
+      String[] attendees = request.getAttendees().toArray(new String[0]);
+      long[] busy = ForkJoinPool.commonPool().invoke(
+          new ShardedBusyTimes(index, attendees, 0, attendees.length));
+      busy = BusyBlocks.merge(busy, BusyBlocks.union(offHours).packed());
+      openings = PackedMeetingQuery.findOpenings(busy, busy.length, duration);
+    } else {
+      // Each attendee's times are already coalesced in the index, so this only merges their
+      // blocks. An event shared by several attendees is part of each of their blocks, which is
+      // harmless.
+      List<BusyBlocks> attendeeBlocks = new ArrayList<>(offHours);
+      for (String attendee : request.getAttendees()) {
+        attendeeBlocks.add(index.getBusyBlocks(attendee));
       }
+      openings = BusyBlocks.union(attendeeBlocks).findOpenings(duration);
+    }
+
+    QueryMetrics.global().recordQuery(
+        QueryMetrics.Path.INDEX, System.nanoTime() - startNanos, openings.size());
+    return openings;
+  }
+
+  /**
+   * Returns the openings that fit every required attendee plus as many optional attendees as
+   * possible. Each returned range is a window where a meeting of the requested duration can start
+   * anywhere and still fit the largest achievable number of optional attendees. If no optional
+   * attendee can be fit in, this falls back to {@link #query(AttendeeIndex, MeetingRequest)}.
+   *
+   * <p>Rather than retrying every subset of optional attendees, this counts how many of them are
+   * free at each possible start minute, so it stays linear in the number of optional attendees.
+   */
+  public Collection<TimeRange> queryWithOptionalAttendees(
+      AttendeeIndex index, MeetingRequest request) {
+    long startNanos = System.nanoTime();
+    int duration = (int) request.getDuration();
+
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return Arrays.asList();
+    }
 
+    // Start minutes are counted for at least one minute, so shorter requests get the same windows.
+    duration = FreeStartCounts.minutesNeeded(duration);
+    int[] optionalFree = FreeStartCounts.count(
+        index, request.getAttendees(), request.getOptionalAttendees(), duration);
+
+    int mostOptional = FreeStartCounts.REQUIRED_BUSY;
+    for (int count : optionalFree) {
+      mostOptional = Math.max(mostOptional, count);
     }
-    // If there are no remaining meetings, entire day is free
-    if (validMeetings.isEmpty()) {
-      return Arrays.asList(TimeRange.WHOLE_DAY);
+
+    if (mostOptional <= 0) {
+      return query(index, request);
     }
-    
-    // Check if time before first meeting is an opening 
+
+    // Every run of start minutes that fits the most optional attendees becomes one opening that
+    // lasts from the first start to the end of a meeting at the last start.
     List<TimeRange> openings = new ArrayList<>();
-    if (validMeetings.get(0).start() - TimeRange.START_OF_DAY >= duration) {
-      openings.add(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, validMeetings.get(0).start(), false));
-    }
+    int lastStart = TimeRange.WHOLE_DAY.duration() - duration;
+    int start = 0;
+    while (start <= lastStart) {
+      if (optionalFree[start] != mostOptional) {
+        ++start;
+        continue;
+      }
 
-    // Run findNextTime on each element of meetings in order to find all stretches of available time
-    for (int i = 0; i < validMeetings.size(); ++i) {
-      TimeRange meetingTime = findNextTime(validMeetings, i, duration);
-      if (meetingTime != null) {
-        openings.add(meetingTime);
+      int runEnd = start;
+      while (runEnd + 1 <= lastStart && optionalFree[runEnd + 1] == mostOptional) {
+        ++runEnd;
       }
+      openings.add(TimeRange.fromStartEnd(start, runEnd + duration, false));
+      start = runEnd + 1;
     }
-    
+
+    // Queries that fall back above are counted under the index path instead.
+    QueryMetrics.global().recordQuery(
+        QueryMetrics.Path.OPTIONAL, System.nanoTime() - startNanos, openings.size());
     return openings;
   }
 
-  // Takes in sorted list of meetings and returns next available TimeRange given, or null if none available with current startTime
-  private TimeRange findNextTime(List<TimeRange> meetings, int startMeetingIndex, int duration) {
-    int startTime = meetings.get(startMeetingIndex).end();
+  /**
+   * Same as {@link #queryWithOptionalAttendees(AttendeeIndex, MeetingRequest)}, indexing
+   * {@code events} first.
+   */
+  public Collection<TimeRange> queryWithOptionalAttendees(
+      Collection<Event> events, MeetingRequest request) {
+    return queryWithOptionalAttendees(AttendeeIndex.of(events), request);
+  }
 
-    // If this is the last meeting in the list and there's a meeting time that fits, return a meeting time.
-    if (startMeetingIndex == meetings.size() - 1) {
-      return (startTime + duration <= TimeRange.END_OF_DAY) ? 
-            TimeRange.fromStartEnd(startTime, TimeRange.END_OF_DAY, true) 
-            : null;
-    }
+  /**
+   * Answers every request in {@code requests} against the same {@code events}, honouring optional
+   * attendees like {@link #queryWithOptionalAttendees(AttendeeIndex, MeetingRequest)}. The events
+   * are sorted and indexed once and shared by every request. The answers are returned in the same
+   * order as the requests.
+   */
+  public List<Collection<TimeRange>> queryAll(
+      Collection<Event> events, List<MeetingRequest> requests) {
+    return queryAll(events, requests, false);
+  }
 
-    /* If next meeting's start time is farther away than duration,
-     * return a TimeRange from startTime -> the start of the next meeting. */
-    if (meetings.get(startMeetingIndex + 1).start() - startTime >= duration) {
-      return TimeRange.fromStartEnd(startTime, meetings.get(startMeetingIndex + 1).start(), false);
+  /**
+   * Same as {@link #queryAll(Collection, List)}. If {@code parallel} is true, the requests are
+   * answered concurrently on the common fork-join pool.
+   */
+  public List<Collection<TimeRange>> queryAll(
+      Collection<Event> events, List<MeetingRequest> requests, boolean parallel) {
+    return queryAll(AttendeeIndex.of(events), requests, parallel);
+  }
+
+  /**
+   * Same as {@link #queryAll(Collection, List, boolean)} for events that have already been
+   * indexed, so that callers can keep one index across many batches.
+   */
+  public List<Collection<TimeRange>> queryAll(
+      AttendeeIndex index, List<MeetingRequest> requests, boolean parallel) {
+    if (parallel) {
+      // The index is read-only and queries keep no state, so requests can share both safely.
+      return requests.parallelStream()
+          .map(request -> queryWithOptionalAttendees(index, request))
+          .collect(Collectors.toList());
     }
-    else {
-      return null;
+
+    List<Collection<TimeRange>> answers = new ArrayList<>(requests.size());
+    for (MeetingRequest request : requests) {
+      answers.add(queryWithOptionalAttendees(index, request));
     }
+    return answers;
   }
 }
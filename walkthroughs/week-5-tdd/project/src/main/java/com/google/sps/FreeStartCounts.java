@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Counts, for every minute a meeting could start at, how many optional attendees are free for the
+ * whole meeting. Each attendee's free gaps are turned into a range of valid start minutes and
+ * added to a difference array, so the cost is linear in the attendees' events plus the length of
+ * the day no matter how many optional attendees there are.
+ */
+final class FreeStartCounts {
+  /** Marks a start minute where at least one required attendee is busy. */
+  static final int REQUIRED_BUSY = -1;
+
+  private FreeStartCounts() {}
+
+  /**
+   * Returns an array indexed by start minute. Each entry is the number of {@code optional}
+   * attendees free for {@code duration} minutes from that start, or {@link #REQUIRED_BUSY} if any
+   * of the {@code required} attendees is busy. {@code duration} must not exceed a day, and is
+   * rounded up to {@link #minutesNeeded}.
+   */
+  static int[] count(AttendeeIndex index, Collection<String> required,
+      Collection<String> optional, int duration) {
+    duration = minutesNeeded(duration);
+    int lastStart = TimeRange.WHOLE_DAY.duration() - duration;
+
+    // Extra slot so that a range ending on the last start can still be closed off.
+    int[] requiredFree = new int[lastStart + 2];
+    List<BusyBlocks> requiredBlocks = new ArrayList<>();
+    for (String attendee : required) {
+      requiredBlocks.add(index.getBusyBlocks(attendee));
+    }
+    addFreeStarts(BusyBlocks.union(requiredBlocks), duration, requiredFree);
+
+    int[] counts = new int[lastStart + 2];
+    for (String attendee : optional) {
+      addFreeStarts(index.getBusyBlocks(attendee), duration, counts);
+    }
+
+    int free = 0;
+    int optionalFree = 0;
+    for (int start = 0; start <= lastStart; ++start) {
+      free += requiredFree[start];
+      optionalFree += counts[start];
+      counts[start] = free > 0 ? optionalFree : REQUIRED_BUSY;
+    }
+    return counts;
+  }
+
+  /**
+   * Returns how many minutes from each start have to be free for a meeting of {@code duration}
+   * minutes. Even a meeting with no duration needs the minute it starts at, so this is never less
+   * than one.
+   */
+  static int minutesNeeded(int duration) {
+    return Math.max(duration, 1);
+  }
+
+  /**
+   * Adds one to {@code diff} over every start minute that leaves {@code duration} free minutes
+   * before the next of the {@code busy} blocks begins. The gap after the last block only counts if
+   * it passes {@link PackedMeetingQuery#lastGapFits}, so that these starts agree with the openings
+   * that {@code FindMeetingQuery#query} finds.
+   */
+  private static void addFreeStarts(BusyBlocks busy, int duration, int[] diff) {
+    long[] blocks = busy.packed();
+    int gapStart = TimeRange.START_OF_DAY;
+    for (long block : blocks) {
+      int start = PackedMeetingQuery.start(block);
+      if (start > gapStart) {
+        addGap(gapStart, start, duration, diff);
+      }
+      gapStart = PackedMeetingQuery.end(block);
+    }
+    if (blocks.length == 0 || PackedMeetingQuery.lastGapFits(gapStart, duration)) {
+      addGap(gapStart, TimeRange.WHOLE_DAY.end(), duration, diff);
+    }
+  }
+
+  private static void addGap(int gapStart, int gapEnd, int duration, int[] diff) {
+    if (gapEnd - gapStart >= duration) {
+      diff[gapStart]++;
+      diff[gapEnd - duration + 1]--;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index from each attendee to the times they are busy across any number of days. Looking up the
+ * busy times that overlap a window is a search of an interval tree, so a search over a month costs
+ * about the same as a search over a single day with the same number of matching events. Recurring
+ * events are kept as series and only expanded over the window being searched. Indexes are
+ * read-only.
+ */
+public final class HorizonIndex {
+  private final Map<String, Timeline> timelines;
+  private final Map<String, List<RecurringEvent>> series;
+
+  private HorizonIndex(Map<String, Timeline> timelines, Map<String, List<RecurringEvent>> series) {
+    this.timelines = timelines;
+    this.series = series;
+  }
+
+  /**
+   * Builds an index over {@code events}. Every attendee of an event is considered busy for the
+   * whole of {@link HorizonEvent#getWhen()}.
+   */
+  public static HorizonIndex of(Collection<HorizonEvent> events) {
+    return of(events, Collections.<RecurringEvent>emptyList());
+  }
+
+  /**
+   * Builds an index over one-off {@code events} and {@code recurring} series. Every attendee of a
+   * series is considered busy during each of its occurrences.
+   */
+  public static HorizonIndex of(
+      Collection<HorizonEvent> events, Collection<RecurringEvent> recurring) {
+    Map<String, List<HorizonRange>> busyTimes = new HashMap<>();
+    for (HorizonEvent event : events) {
+      for (String attendee : event.getAttendees()) {
+        List<HorizonRange> times = busyTimes.get(attendee);
+        if (times == null) {
+          times = new ArrayList<>();
+          busyTimes.put(attendee, times);
+        }
+        times.add(event.getWhen());
+      }
+    }
+
+    Map<String, Timeline> timelines = new HashMap<>();
+    for (Map.Entry<String, List<HorizonRange>> entry : busyTimes.entrySet()) {
+      timelines.put(entry.getKey(), new Timeline(entry.getValue()));
+    }
+
+    Map<String, List<RecurringEvent>> series = new HashMap<>();
+    for (RecurringEvent event : recurring) {
+      for (String attendee : event.getAttendees()) {
+        List<RecurringEvent> attendeeSeries = series.get(attendee);
+        if (attendeeSeries == null) {
+          attendeeSeries = new ArrayList<>();
+          series.put(attendee, attendeeSeries);
+        }
+        attendeeSeries.add(event);
+      }
+    }
+    return new HorizonIndex(timelines, series);
+  }
+
+  /**
+   * Returns a read-only list of the times {@code attendee} is busy that overlap {@code window},
+   * sorted by start time. The ranges are not clipped to the window.
+   */
+  public List<HorizonRange> getBusyTimes(String attendee, HorizonRange window) {
+    Timeline timeline = timelines.get(attendee);
+    List<HorizonRange> times = timeline == null
+        ? Collections.<HorizonRange>emptyList()
+        : timeline.overlapping(window);
+
+    List<RecurringEvent> attendeeSeries = series.get(attendee);
+    if (attendeeSeries == null) {
+      return times;
+    }
+
+    List<HorizonRange> combined = new ArrayList<>(times);
+    for (RecurringEvent event : attendeeSeries) {
+      combined.addAll(event.occurrences(window));
+    }
+    Collections.sort(combined, HorizonRange.ORDER_BY_START);
+    return combined;
+  }
+
+  /**
+   * One attendee's busy times, kept as an interval tree. The ranges are sorted by start and form
+   * an implicit balanced search tree: each slice of the array is rooted at its middle range, with
+   * the ranges before and after it as the two subtrees. {@code subtreeEnds} holds the latest end in
+   * each subtree, so a search can drop any subtree that is over before the window begins, and drop
+   * everything after a range that begins once the window is over. A search only walks the paths
+   * down to the ranges it returns, however many earlier ranges are still open.
+   */
+  private static final class Timeline {
+    private final HorizonRange[] ranges;
+    // subtreeEnds[i] is the latest end in the subtree rooted at ranges[i].
+    private final long[] subtreeEnds;
+
+    Timeline(List<HorizonRange> times) {
+      ranges = times.toArray(new HorizonRange[0]);
+      Arrays.sort(ranges, HorizonRange.ORDER_BY_START);
+
+      subtreeEnds = new long[ranges.length];
+      computeSubtreeEnds(0, ranges.length);
+    }
+
+    List<HorizonRange> overlapping(HorizonRange window) {
+      List<HorizonRange> overlapping = new ArrayList<>();
+      collect(0, ranges.length, window, overlapping);
+      return overlapping;
+    }
+
+    // Fills in subtreeEnds for the subtree over [low, high) and returns its latest end.
+    private long computeSubtreeEnds(int low, int high) {
+      if (low >= high) {
+        return Long.MIN_VALUE;
+      }
+      int middle = (low + high) >>> 1;
+      long end = Math.max(ranges[middle].end(),
+          Math.max(computeSubtreeEnds(low, middle), computeSubtreeEnds(middle + 1, high)));
+      subtreeEnds[middle] = end;
+      return end;
+    }
+
+    // Adds the ranges of the subtree over [low, high) that overlap window, in order of start.
+    private void collect(int low, int high, HorizonRange window, List<HorizonRange> overlapping) {
+      if (low >= high) {
+        return;
+      }
+      int middle = (low + high) >>> 1;
+      if (subtreeEnds[middle] <= window.start()) {
+        // Every range in this subtree is over before the window starts.
+        return;
+      }
+
+      collect(low, middle, window, overlapping);
+      if (ranges[middle].start() >= window.end()) {
+        // This range and every range after it start once the window is over.
+        return;
+      }
+      if (ranges[middle].end() > window.start()) {
+        overlapping.add(ranges[middle]);
+      }
+      collect(middle + 1, high, window, overlapping);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds meeting times within a window that can span many days, such as the next few weeks. The
+ * whole window is searched in one pass over the attendees' busy times, rather than as one
+ * {@link FindMeetingQuery} per day, and openings may run across midnight.
+ */
+public final class HorizonMeetingQuery {
+  /**
+   * Returns every opening inside {@code window} where all of the request's attendees are free for
+   * at least the requested duration. Openings are clipped to the window. Optional attendees are not
+   * considered.
+   */
+  public List<HorizonRange> query(HorizonIndex index, MeetingRequest request,
+      HorizonRange window) {
+    long duration = request.getDuration();
+    List<HorizonRange> openings = new ArrayList<>();
+
+    if (duration > window.duration()) {
+      return openings;
+    }
+
+    // Clip every busy time to the window and pack it as minutes since the window start, so that
+    // they can be sorted as primitives. Ranges in a window under 4,000 years long fit in an int.
+    long[] busy = new long[0];
+    int count = 0;
+    for (String attendee : request.getAttendees()) {
+      List<HorizonRange> times = index.getBusyTimes(attendee, window);
+      if (count + times.size() > busy.length) {
+        busy = Arrays.copyOf(busy, Math.max(2 * busy.length, count + times.size()));
+      }
+      for (HorizonRange range : times) {
+        if (range.duration() > 0) {
+          int start = (int) (Math.max(range.start(), window.start()) - window.start());
+          int end = (int) (Math.min(range.end(), window.end()) - window.start());
+          busy[count++] = PackedMeetingQuery.pack(start, end);
+        }
+      }
+    }
+    Arrays.sort(busy, 0, count);
+
+    long freeStart = 0;
+    for (int i = 0; i < count; ++i) {
+      int start = PackedMeetingQuery.start(busy[i]);
+      if (start - freeStart >= duration) {
+        openings.add(HorizonRange.fromStartEnd(
+            window.start() + freeStart, window.start() + start));
+      }
+      freeStart = Math.max(freeStart, PackedMeetingQuery.end(busy[i]));
+    }
+
+    if (window.duration() - freeStart >= duration) {
+      openings.add(HorizonRange.fromStartEnd(window.start() + freeStart, window.end()));
+    }
+
+    return openings;
+  }
+}
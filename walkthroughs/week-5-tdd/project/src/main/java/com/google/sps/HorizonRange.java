@@ -0,0 +1,134 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Comparator;
+
+/**
+ * A span of time that isn't limited to a single day. Where {@link TimeRange} counts minutes since
+ * the start of the day, a {@code HorizonRange} counts minutes since the Unix epoch, so it can
+ * describe anything from a five-minute call to a month-long search window.
+ */
+public final class HorizonRange {
+  public static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  /**
+   * A comparator for sorting ranges by their start time in ascending order.
+   */
+  public static final Comparator<HorizonRange> ORDER_BY_START = new Comparator<HorizonRange>() {
+    @Override
+    public int compare(HorizonRange a, HorizonRange b) {
+      return Long.compare(a.start, b.start);
+    }
+  };
+
+  private final long start;
+  private final long duration;
+
+  private HorizonRange(long start, long duration) {
+    if (duration < 0) {
+      throw new IllegalArgumentException("duration cannot be negative");
+    }
+
+    this.start = start;
+    this.duration = duration;
+  }
+
+  /**
+   * Returns the start of the range in minutes since the epoch.
+   */
+  public long start() {
+    return start;
+  }
+
+  /**
+   * Returns the number of minutes between the start and end.
+   */
+  public long duration() {
+    return duration;
+  }
+
+  /**
+   * Returns the end of the range. This ending value is the closing exclusive bound.
+   */
+  public long end() {
+    return start + duration;
+  }
+
+  /**
+   * Checks if two ranges overlap. Ranges that only touch at an end point do not overlap.
+   */
+  public boolean overlaps(HorizonRange other) {
+    return start < other.end() && other.start < end();
+  }
+
+  /**
+   * Checks if this range completely contains another range. This is an inclusive bounds, meaning
+   * that if two ranges are the same, they contain each other.
+   */
+  public boolean contains(HorizonRange other) {
+    return start <= other.start && other.end() <= end();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof HorizonRange && equals(this, (HorizonRange) other);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(start) ^ Long.hashCode(duration);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Range: [%d, %d)", start, start + duration);
+  }
+
+  private static boolean equals(HorizonRange a, HorizonRange b) {
+    return a.start == b.start && a.duration == b.duration;
+  }
+
+  /**
+   * Creates a {@code HorizonRange} from {@code start} (inclusive) to {@code end} (exclusive), both
+   * in minutes since the epoch.
+   */
+  public static HorizonRange fromStartEnd(long start, long end) {
+    return new HorizonRange(start, end - start);
+  }
+
+  /**
+   * Creates a {@code HorizonRange} starting at {@code start} minutes since the epoch with a
+   * duration equal to {@code duration}.
+   */
+  public static HorizonRange fromStartDuration(long start, long duration) {
+    return new HorizonRange(start, duration);
+  }
+
+  /**
+   * Places a single-day {@code range} on the day {@code epochDay} days after the epoch.
+   */
+  public static HorizonRange onDay(long epochDay, TimeRange range) {
+    return new HorizonRange(epochDay * MINUTES_PER_DAY + range.start(), range.duration());
+  }
+
+  /**
+   * Creates a {@code HorizonRange} covering {@code days} whole days, starting at the beginning of
+   * the day {@code firstEpochDay} days after the epoch.
+   */
+  public static HorizonRange ofDays(long firstEpochDay, int days) {
+    return new HorizonRange(firstEpochDay * MINUTES_PER_DAY, (long) days * MINUTES_PER_DAY);
+  }
+}
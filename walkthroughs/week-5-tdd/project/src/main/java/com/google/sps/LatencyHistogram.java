@@ -0,0 +1,96 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of how long something took, with fixed buckets from 10 microseconds to 10 seconds.
+ * Recording is a short search over the buckets plus two uncontended adds, so it is cheap enough to
+ * leave on for every request. Histograms are safe to use from many threads.
+ */
+public final class LatencyHistogram {
+  // Upper bounds of the buckets in seconds, as Prometheus expects them.
+  private static final String[] BUCKET_SECONDS = {
+    "0.00001", "0.000025", "0.00005", "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005",
+    "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10"
+  };
+  private static final long[] BUCKET_NANOS = new long[BUCKET_SECONDS.length];
+
+  static {
+    for (int i = 0; i < BUCKET_SECONDS.length; ++i) {
+      BUCKET_NANOS[i] = new BigDecimal(BUCKET_SECONDS[i])
+          .multiply(BigDecimal.valueOf(TimeUnit.SECONDS.toNanos(1)))
+          .longValueExact();
+    }
+  }
+
+  // One more count than bounds, for everything slower than the last bound.
+  private final LongAdder[] counts = new LongAdder[BUCKET_NANOS.length + 1];
+  private final LongAdder sumNanos = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records one observation that took {@code nanos} nanoseconds.
+   */
+  public void record(long nanos) {
+    int bucket = 0;
+    while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+      ++bucket;
+    }
+    counts[bucket].increment();
+    sumNanos.add(nanos);
+  }
+
+  /**
+   * Returns how many observations have been recorded.
+   */
+  public long count() {
+    long count = 0;
+    for (LongAdder bucket : counts) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  /**
+   * Writes the histogram's samples in the Prometheus text format. {@code labels} is either empty
+   * or a list such as {@code path="events"} that is added to every sample.
+   */
+  public void writeSamples(Writer out, String name, String labels) throws IOException {
+    String prefix = labels.isEmpty() ? "" : labels + ",";
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_SECONDS.length; ++i) {
+      cumulative += counts[i].sum();
+      out.write(name + "_bucket{" + prefix + "le=\"" + BUCKET_SECONDS[i] + "\"} " + cumulative
+          + "\n");
+    }
+    cumulative += counts[BUCKET_SECONDS.length].sum();
+    out.write(name + "_bucket{" + prefix + "le=\"+Inf\"} " + cumulative + "\n");
+
+    String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+    out.write(name + "_sum" + braces + " " + sumNanos.sum() / 1e9 + "\n");
+    out.write(name + "_count" + braces + " " + cumulative + "\n");
+  }
+}
@@ -14,8 +14,6 @@
 
 package com.google.sps;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -30,6 +28,13 @@ public final class MeetingRequest {
   // The duration of the meeting in minutes.
   private final long duration;
 
+  // The attendees' IDs in the global AttendeeDictionary, looked up on first use. Requests only
+  // look names up and never add them, so that requests for made-up names can't grow the
+  // dictionary. Unknown names have no events and are left out, and the IDs are only kept once
+  // every name has been found, since a later event may bring in the rest.
+  private volatile int[] attendeeIds;
+  private volatile int[] optionalAttendeeIds;
+
   public MeetingRequest(Collection<String> attendees, long duration) {
     this.duration = duration;
     this.attendees.addAll(attendees);
@@ -53,9 +58,39 @@ public final class MeetingRequest {
    * Adds one optional attendee for the meeting.
    */
   public void addOptionalAttendee(String attendee) {
-    if (!attendees.contains(attendee)) {
-      optional_attendees.add(attendee);
+    if (!attendees.contains(attendee) && optional_attendees.add(attendee)) {
+      optionalAttendeeIds = null;
+    }
+  }
+
+  /**
+   * Returns the sorted IDs of the required attendees that the global {@code AttendeeDictionary}
+   * knows. The array must not be modified.
+   */
+  int[] getAttendeeIds() {
+    int[] ids = attendeeIds;
+    if (ids == null) {
+      ids = AttendeeDictionary.global().find(attendees);
+      if (ids.length == attendees.size()) {
+        attendeeIds = ids;
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the sorted IDs of the optional attendees that the global {@code AttendeeDictionary}
+   * knows. The array must not be modified.
+   */
+  int[] getOptionalAttendeeIds() {
+    int[] ids = optionalAttendeeIds;
+    if (ids == null) {
+      ids = AttendeeDictionary.global().find(optional_attendees);
+      if (ids.length == optional_attendees.size()) {
+        optionalAttendeeIds = ids;
+      }
     }
+    return ids;
   }
 
   /**
@@ -0,0 +1,118 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Alternate engine for {@link FindMeetingQuery#query(Collection, MeetingRequest)} that works on
+ * primitive ints instead of {@code TimeRange} objects. Each busy interval is packed into a single
+ * {@code long} (start in the high bits, end in the low bits) so that sorting is a plain primitive
+ * sort, and the sweep over the intervals allocates nothing. {@code TimeRange} objects are only
+ * created for the openings that are returned. Results are identical to {@code FindMeetingQuery}.
+ */
+public final class PackedMeetingQuery {
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    int duration = (int) request.getDuration();
+
+    // If request is longer than length of day, then there would never be any options
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return Arrays.asList();
+    }
+
+    int[] attendees = request.getAttendeeIds();
+
+    long[] busy = new long[events.size()];
+    int count = 0;
+    for (Event event : events) {
+      if (AttendeeDictionary.intersects(event.getAttendeeIds(), attendees)) {
+        TimeRange when = event.getWhen();
+        busy[count++] = pack(when.start(), when.end());
+      }
+    }
+
+    Arrays.sort(busy, 0, count);
+    return findOpenings(busy, count, duration);
+  }
+
+  /**
+   * Returns every opening of at least {@code duration} minutes around the first {@code count}
+   * packed intervals in {@code busy}, which must be sorted in ascending order.
+   */
+  static List<TimeRange> findOpenings(long[] busy, int count, int duration) {
+    List<TimeRange> openings = new ArrayList<>();
+
+    // If there are no meetings, entire day is free
+    if (count == 0) {
+      openings.add(TimeRange.WHOLE_DAY);
+      return openings;
+    }
+
+    int firstStart = start(busy[0]);
+    if (firstStart - TimeRange.START_OF_DAY >= duration) {
+      openings.add(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, firstStart, false));
+    }
+
+    // Sweep the intervals, skipping any that end before the latest end seen so far (they are
+    // nested inside an earlier interval). Every other interval's start closes the gap that opened
+    // at the latest end.
+    int latestEnd = end(busy[0]);
+    for (int i = 1; i < count; ++i) {
+      int end = end(busy[i]);
+      if (end <= latestEnd) {
+        continue;
+      }
+
+      int start = start(busy[i]);
+      if (start - latestEnd >= duration) {
+        openings.add(TimeRange.fromStartEnd(latestEnd, start, false));
+      }
+      latestEnd = end;
+    }
+
+    if (lastGapFits(latestEnd, duration)) {
+      openings.add(TimeRange.fromStartEnd(latestEnd, TimeRange.END_OF_DAY, true));
+    }
+
+    return openings;
+  }
+
+  /**
+   * Checks if the gap from {@code gapStart} to the end of a day that has busy times in it is long
+   * enough for the meeting. Like the original sweep, this measures the gap to
+   * {@link TimeRange#END_OF_DAY}, so it has to be a minute longer than the meeting even though the
+   * opening itself runs to the end of the day. Every path that finds openings uses this rule, so
+   * they all agree. A day with nothing in it is free for any meeting up to a day long.
+   */
+  static boolean lastGapFits(int gapStart, int duration) {
+    return gapStart + duration <= TimeRange.END_OF_DAY;
+  }
+
+  /** Packs an interval into one long that sorts by start first and end second. */
+  static long pack(int start, int end) {
+    return ((long) start << 32) | (end & 0xFFFFFFFFL);
+  }
+
+  static int start(long packed) {
+    return (int) (packed >>> 32);
+  }
+
+  static int end(long packed) {
+    return (int) packed;
+  }
+}
@@ -0,0 +1,213 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of query answers, keyed by the request's required attendees, optional attendees
+ * and duration. Each answer remembers the calendar version it was computed against. When the
+ * calendar changes only the attendees of the changed events are marked, so an answer stays valid
+ * until one of its own attendees is touched, however many other versions go by. The least
+ * recently used answer is evicted once the cache is full.
+ *
+ * <p>Register the cache with {@link EventStore#addListener} before using it.
+ */
+public final class QueryCache implements EventStore.Listener {
+  private final int capacity;
+  private final Map<Key, CachedAnswer> entries;
+
+  // The last version that touched each attendee, by ID in the global AttendeeDictionary.
+  private final Map<Integer, Long> lastChanged = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Creates a cache that holds at most {@code capacity} answers.
+   */
+  public QueryCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<Key, CachedAnswer>(16, 0.75f, /* accessOrder= */ true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CachedAnswer> eldest) {
+        return size() > QueryCache.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached answer to {@code request} if it is still right for {@code snapshot}, or
+   * null if the answer has to be computed.
+   */
+  public Collection<TimeRange> get(EventStore.Snapshot snapshot, MeetingRequest request) {
+    Key key = new Key(request);
+    CachedAnswer entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+    }
+
+    if (entry != null && isCurrent(entry, key, snapshot.getVersion())) {
+      hits.increment();
+      return entry.answer;
+    }
+
+    if (entry != null && entry.version < snapshot.getVersion()) {
+      // Stale for every reader from now on, so free up its slot.
+      synchronized (entries) {
+        entries.remove(key, entry);
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Remembers {@code answer} as the answer to {@code request} against {@code snapshot}.
+   */
+  public void put(EventStore.Snapshot snapshot, MeetingRequest request,
+      Collection<TimeRange> answer) {
+    Key key = new Key(request);
+    CachedAnswer entry = new CachedAnswer(
+        snapshot.getVersion(), Collections.unmodifiableList(new ArrayList<>(answer)));
+    synchronized (entries) {
+      CachedAnswer existing = entries.get(key);
+      // A reader still holding an older snapshot must not replace a newer answer.
+      if (existing == null || existing.version <= entry.version) {
+        entries.put(key, entry);
+      }
+    }
+  }
+
+  @Override
+  public void changed(long version, Collection<Event> added, Collection<Event> removed) {
+    markChanged(version, added);
+    markChanged(version, removed);
+  }
+
+  /**
+   * Returns how many lookups found a valid answer.
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns how many lookups had to compute the answer.
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns how many answers the cache holds, including ones that are no longer valid.
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private void markChanged(long version, Collection<Event> events) {
+    for (Event event : events) {
+      for (int id : event.getAttendeeIds()) {
+        lastChanged.put(id, version);
+      }
+    }
+  }
+
+  // An answer computed at one version is right for a later one if none of its attendees changed
+  // in between. We only know each attendee's latest change, so answers for readers holding an
+  // older snapshot than the latest change are conservatively treated as stale.
+  private boolean isCurrent(CachedAnswer entry, Key key, long version) {
+    if (entry.version > version) {
+      return false;
+    }
+    return unchangedSince(entry.version, key.attendees)
+        && unchangedSince(entry.version, key.optionalAttendees);
+  }
+
+  private boolean unchangedSince(long version, int[] ids) {
+    for (int id : ids) {
+      Long changed = lastChanged.get(id);
+      if (changed != null && changed > version) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class Key {
+    private final int[] attendees;
+    private final int[] optionalAttendees;
+    // Names the dictionary doesn't know are never busy, so which ones they are doesn't change the
+    // answer. How many there are does, since a request with no required attendees is answered
+    // differently from one whose required attendees are all free.
+    private final int attendeeCount;
+    private final int optionalAttendeeCount;
+    private final long duration;
+    private final int hash;
+
+    Key(MeetingRequest request) {
+      // Both arrays are already sorted without duplicates, so equal sets give equal arrays.
+      this.attendees = request.getAttendeeIds();
+      this.optionalAttendees = request.getOptionalAttendeeIds();
+      this.attendeeCount = request.getAttendees().size();
+      this.optionalAttendeeCount = request.getOptionalAttendees().size();
+      this.duration = request.getDuration();
+      this.hash = 31 * (31 * (31 * (31 * Arrays.hashCode(attendees)
+          + Arrays.hashCode(optionalAttendees)) + attendeeCount) + optionalAttendeeCount)
+          + Long.hashCode(duration);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return duration == key.duration && attendeeCount == key.attendeeCount
+          && optionalAttendeeCount == key.optionalAttendeeCount
+          && Arrays.equals(attendees, key.attendees)
+          && Arrays.equals(optionalAttendees, key.optionalAttendees);
+    }
+  }
+
+  private static final class CachedAnswer {
+    private final long version;
+    private final Collection<TimeRange> answer;
+
+    CachedAnswer(long version, Collection<TimeRange> answer) {
+      this.version = version;
+      this.answer = answer;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what the meeting queries do: how long they take, how many openings they return and, for
+ * the path that scans the calendar, how many events it looks at and how many of those involve the
+ * requested attendees, split by the path that answered the query. It also keeps how long whole
+ * requests take and roughly how much memory they allocate. Everything is kept in
+ * {@code LongAdder}s, so recording never blocks and is cheap enough to leave on under load. The
+ * numbers can be written in the Prometheus text format.
+ */
+public final class QueryMetrics {
+  private static final QueryMetrics GLOBAL = new QueryMetrics();
+
+  /** The ways a query can be answered. */
+  public enum Path {
+    /** {@link FindMeetingQuery#query(java.util.Collection, MeetingRequest)}, scanning events. */
+    EVENTS(true),
+    /** {@link FindMeetingQuery#query(AttendeeIndex, MeetingRequest)}, merging busy blocks. */
+    INDEX(false),
+    /** {@link FindMeetingQuery#queryWithOptionalAttendees(AttendeeIndex, MeetingRequest)}. */
+    OPTIONAL(false),
+    /** {@link BusyBitmaps#query(MeetingRequest)}, which doesn't look at events at all. */
+    BITMAPS(false);
+
+    private final String label = "path=\"" + name().toLowerCase(Locale.ROOT) + "\"";
+
+    // Whether the path looks at events that may not involve the request. The others only read
+    // the requested attendees' own data, so every piece they look at is a match.
+    private final boolean scansEvents;
+
+    Path(boolean scansEvents) {
+      this.scansEvents = scansEvents;
+    }
+  }
+
+  private final LatencyHistogram[] queryLatency = new LatencyHistogram[Path.values().length];
+  private final LongAdder[] eventsScanned = new LongAdder[Path.values().length];
+  private final LongAdder[] eventsMatched = new LongAdder[Path.values().length];
+  private final LongAdder[] openings = new LongAdder[Path.values().length];
+
+  private final LatencyHistogram requestLatency = new LatencyHistogram();
+  private final LongAdder allocatedBytes = new LongAdder();
+
+  public QueryMetrics() {
+    for (int i = 0; i < queryLatency.length; ++i) {
+      queryLatency[i] = new LatencyHistogram();
+      eventsScanned[i] = new LongAdder();
+      eventsMatched[i] = new LongAdder();
+      openings[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Returns the metrics the query engines record into.
+   */
+  public static QueryMetrics global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Records one query answered by {@code path}. {@code scanned} is how many events the query
+   * looked at and {@code matched} how many of those involved a requested attendee. Only the events
+   * path has anything to filter; the others record through {@link #recordQuery(Path, long, int)}.
+   */
+  public void recordQuery(Path path, long nanos, int scanned, int matched, int openingCount) {
+    int i = path.ordinal();
+    queryLatency[i].record(nanos);
+    eventsScanned[i].add(scanned);
+    eventsMatched[i].add(matched);
+    openings[i].add(openingCount);
+  }
+
+  /**
+   * Records one query answered by a path that only reads the requested attendees' own data.
+   */
+  public void recordQuery(Path path, long nanos, int openingCount) {
+    int i = path.ordinal();
+    queryLatency[i].record(nanos);
+    openings[i].add(openingCount);
+  }
+
+  /**
+   * Records one {@code /query} request that took {@code nanos} and allocated roughly
+   * {@code bytes} on the request thread.
+   */
+  public void recordRequest(long nanos, long bytes) {
+    requestLatency.record(nanos);
+    allocatedBytes.add(bytes);
+  }
+
+  /**
+   * Writes every metric in the Prometheus text format.
+   */
+  public void writePrometheus(Writer out) throws IOException {
+    writeHeader(out, "scheduler_query_duration_seconds", "histogram",
+        "Time spent finding the openings for one meeting request.");
+    for (Path path : Path.values()) {
+      queryLatency[path.ordinal()].writeSamples(out, "scheduler_query_duration_seconds",
+          path.label);
+    }
+
+    writeCounters(out, "scheduler_query_events_scanned_total",
+        "Events looked at by queries that scan the calendar.", eventsScanned, true);
+    writeCounters(out, "scheduler_query_events_matched_total",
+        "Scanned events that involved a requested attendee.", eventsMatched, true);
+    writeCounters(out, "scheduler_query_openings_total", "Openings returned by queries.",
+        openings, false);
+
+    writeHeader(out, "scheduler_request_duration_seconds", "histogram",
+        "Time spent answering one /query request, including JSON.");
+    requestLatency.writeSamples(out, "scheduler_request_duration_seconds", "");
+
+    writeHeader(out, "scheduler_request_allocated_bytes_total", "counter",
+        "Estimated bytes allocated by /query requests on the request thread.");
+    out.write("scheduler_request_allocated_bytes_total " + allocatedBytes.sum() + "\n");
+  }
+
+  private static void writeCounters(Writer out, String name, String help, LongAdder[] counters,
+      boolean onlyScans) throws IOException {
+    writeHeader(out, name, "counter", help);
+    for (Path path : Path.values()) {
+      if (!onlyScans || path.scansEvents) {
+        out.write(name + "{" + path.label + "} " + counters[path.ordinal()].sum() + "\n");
+      }
+    }
+  }
+
+  /**
+   * Writes the {@code HELP} and {@code TYPE} lines that start a metric family.
+   */
+  public static void writeHeader(Writer out, String name, String type, String help)
+      throws IOException {
+    out.write("# HELP " + name + " " + help + "\n");
+    out.write("# TYPE " + name + " " + type + "\n");
+  }
+}
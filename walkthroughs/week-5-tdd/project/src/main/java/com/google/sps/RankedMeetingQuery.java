@@ -0,0 +1,153 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Suggests the best few meeting slots instead of every opening. Every slot that fits all required
+ * attendees is scored with a {@link SlotScorer}, and only the top k are kept in a bounded heap.
+ * Slots are visited in order of start time so that the scan can stop as soon as the scorer says no
+ * later slot can beat the ones already found.
+ */
+public final class RankedMeetingQuery {
+  /** By default slots start on the quarter hour. */
+  public static final int DEFAULT_GRANULARITY = 15;
+
+  // Best slots first. Ties go to the earlier slot.
+  private static final Comparator<RankedSlot> BEST_FIRST = new Comparator<RankedSlot>() {
+    @Override
+    public int compare(RankedSlot a, RankedSlot b) {
+      int byScore = Double.compare(b.score, a.score);
+      return byScore != 0 ? byScore : Integer.compare(a.when.start(), b.when.start());
+    }
+  };
+
+  private final int granularity;
+
+  public RankedMeetingQuery() {
+    this(DEFAULT_GRANULARITY);
+  }
+
+  /**
+   * Creates a query that only suggests slots starting on a multiple of {@code granularity}
+   * minutes.
+   */
+  public RankedMeetingQuery(int granularity) {
+    if (granularity <= 0) {
+      throw new IllegalArgumentException("granularity must be positive");
+    }
+    this.granularity = granularity;
+  }
+
+  /**
+   * Returns up to {@code k} slots that fit every required attendee, best first according to
+   * {@code scorer}.
+   */
+  public List<RankedSlot> query(AttendeeIndex index, MeetingRequest request, int k,
+      SlotScorer scorer) {
+    int duration = (int) request.getDuration();
+    List<RankedSlot> best = new ArrayList<>();
+
+    if (k <= 0 || duration > TimeRange.WHOLE_DAY.duration()) {
+      return best;
+    }
+
+    // A slot is never shorter than the one minute that each start is counted for.
+    duration = FreeStartCounts.minutesNeeded(duration);
+    int totalOptional = request.getOptionalAttendees().size();
+    int[] optionalFree = FreeStartCounts.count(
+        index, request.getAttendees(), request.getOptionalAttendees(), duration);
+
+    // Min-heap on score, so the k-th best slot is always on top and is the one to evict.
+    PriorityQueue<RankedSlot> heap = new PriorityQueue<>(k, Collections.reverseOrder(BEST_FIRST));
+    int lastStart = TimeRange.WHOLE_DAY.duration() - duration;
+    for (int start = 0; start <= lastStart; start += granularity) {
+      if (heap.size() == k
+          && scorer.bestScoreFrom(start, duration, totalOptional) <= heap.peek().score) {
+        break;
+      }
+
+      if (optionalFree[start] == FreeStartCounts.REQUIRED_BUSY) {
+        continue;
+      }
+
+      TimeRange when = TimeRange.fromStartDuration(start, duration);
+      RankedSlot slot = new RankedSlot(
+          when, optionalFree[start], scorer.score(when, optionalFree[start], totalOptional));
+      if (heap.size() < k) {
+        heap.add(slot);
+      } else if (BEST_FIRST.compare(slot, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(slot);
+      }
+    }
+
+    best.addAll(heap);
+    Collections.sort(best, BEST_FIRST);
+    return best;
+  }
+
+  /**
+   * Same as {@link #query(AttendeeIndex, MeetingRequest, int, SlotScorer)} using a
+   * {@link DefaultSlotScorer}.
+   */
+  public List<RankedSlot> query(AttendeeIndex index, MeetingRequest request, int k) {
+    return query(index, request, k, new DefaultSlotScorer());
+  }
+
+  /** A suggested meeting slot and its score. */
+  public static final class RankedSlot {
+    private final TimeRange when;
+    private final int optionalAttendees;
+    private final double score;
+
+    RankedSlot(TimeRange when, int optionalAttendees, double score) {
+      this.when = when;
+      this.optionalAttendees = optionalAttendees;
+      this.score = score;
+    }
+
+    /**
+     * Returns when the meeting would take place.
+     */
+    public TimeRange getWhen() {
+      return when;
+    }
+
+    /**
+     * Returns how many of the optional attendees can make this slot.
+     */
+    public int getOptionalAttendees() {
+      return optionalAttendees;
+    }
+
+    /**
+     * Returns the score the scorer gave this slot.
+     */
+    public double getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s with %d optional, score %.3f", when, optionalAttendees, score);
+    }
+  }
+}
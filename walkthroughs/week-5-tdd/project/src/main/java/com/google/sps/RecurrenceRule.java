@@ -0,0 +1,133 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * How often a {@link RecurringEvent} repeats: every few days, or on some days of every few weeks,
+ * optionally stopping after a number of occurrences or at a point in time. Rules are read-only;
+ * {@link #times(int)} and {@link #until(long)} return a new rule.
+ */
+public final class RecurrenceRule {
+  private static final int DAYS_PER_WEEK = 7;
+
+  private final int periodDays;
+  private final Set<DayOfWeek> days;
+  private final int count;
+  private final long until;
+
+  private RecurrenceRule(int periodDays, Set<DayOfWeek> days, int count, long until) {
+    this.periodDays = periodDays;
+    this.days = days;
+    this.count = count;
+    this.until = until;
+  }
+
+  /**
+   * Returns a rule that repeats every {@code interval} days, forever.
+   */
+  public static RecurrenceRule daily(int interval) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    return new RecurrenceRule(
+        interval, Collections.<DayOfWeek>emptySet(), Integer.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns a rule that repeats on each of {@code days} every {@code interval} weeks, forever. The
+   * day of the first occurrence always counts, even if it isn't one of {@code days}, and weeks are
+   * counted from it rather than from a fixed day of the week.
+   */
+  public static RecurrenceRule weekly(int interval, Set<DayOfWeek> days) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    if (days == null) {
+      throw new IllegalArgumentException("days cannot be null. Use empty set instead.");
+    }
+    Set<DayOfWeek> copy = days.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(days);
+    return new RecurrenceRule(interval * DAYS_PER_WEEK, Collections.unmodifiableSet(copy),
+        Integer.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns the same rule, stopping after {@code count} occurrences.
+   */
+  public RecurrenceRule times(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count cannot be negative");
+    }
+    return new RecurrenceRule(periodDays, days, count, until);
+  }
+
+  /**
+   * Returns the same rule, with no occurrence starting at or after {@code epochMinute}.
+   */
+  public RecurrenceRule until(long epochMinute) {
+    return new RecurrenceRule(periodDays, days, count, epochMinute);
+  }
+
+  /**
+   * Returns the number of minutes after which the pattern repeats.
+   */
+  long periodMinutes() {
+    return (long) periodDays * HorizonRange.MINUTES_PER_DAY;
+  }
+
+  /**
+   * Returns the sorted start offsets of the occurrences in each period, in minutes from the start
+   * of an occurrence at {@code firstStart}.
+   */
+  long[] offsetsFrom(long firstStart) {
+    if (days.isEmpty()) {
+      return new long[] {0};
+    }
+
+    long firstDay = Math.floorDiv(firstStart, HorizonRange.MINUTES_PER_DAY);
+    DayOfWeek firstDayOfWeek = LocalDate.ofEpochDay(firstDay).getDayOfWeek();
+    Set<DayOfWeek> repeatDays = EnumSet.copyOf(days);
+    repeatDays.add(firstDayOfWeek);
+
+    long[] offsets = new long[repeatDays.size()];
+    int i = 0;
+    for (DayOfWeek day : repeatDays) {
+      int daysAfter = Math.floorMod(day.getValue() - firstDayOfWeek.getValue(), DAYS_PER_WEEK);
+      offsets[i++] = (long) daysAfter * HorizonRange.MINUTES_PER_DAY;
+    }
+    Arrays.sort(offsets);
+    return offsets;
+  }
+
+  /**
+   * Returns the most occurrences the rule allows.
+   */
+  int maxOccurrences() {
+    return count;
+  }
+
+  /**
+   * Returns the epoch minute at or after which no occurrence may start.
+   */
+  long endMinute() {
+    return until;
+  }
+}
@@ -0,0 +1,179 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An event that repeats by a {@link RecurrenceRule}, such as a daily stand-up or a weekly 1:1.
+ * Occurrences are never stored. {@link #occurrences(HorizonRange)} works out just the ones that
+ * overlap a window, jumping straight to the first of them, so a series that runs forever costs the
+ * same as one that runs for a week. The last few windows asked for are remembered, so queries that
+ * keep asking about the same day or week don't expand the series again. Events are considered
+ * read-only.
+ */
+public final class RecurringEvent {
+  // How many expanded windows each series remembers.
+  private static final int CACHED_WINDOWS = 8;
+
+  private final String title;
+  private final HorizonRange first;
+  private final Set<String> attendees = new HashSet<>();
+  private final RecurrenceRule rule;
+
+  private final long period;
+  private final long[] offsets;
+  private final Map<HorizonRange, List<HorizonRange>> expansions =
+      new LinkedHashMap<HorizonRange, List<HorizonRange>>(16, 0.75f, /* accessOrder= */ true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<HorizonRange, List<HorizonRange>> eldest) {
+          return size() > CACHED_WINDOWS;
+        }
+      };
+
+  /**
+   * Creates a new series.
+   *
+   * @param title The human-readable name for the event. Must be non-null.
+   * @param first When the first occurrence takes place. Must be non-null.
+   * @param attendees The collection of people attending every occurrence. Must be non-null.
+   * @param rule How the event repeats. Must be non-null.
+   */
+  public RecurringEvent(String title, HorizonRange first, Collection<String> attendees,
+      RecurrenceRule rule) {
+    if (title == null) {
+      throw new IllegalArgumentException("title cannot be null");
+    }
+
+    if (first == null) {
+      throw new IllegalArgumentException("first cannot be null");
+    }
+
+    if (attendees == null) {
+      throw new IllegalArgumentException("attendees cannot be null. Use empty array instead.");
+    }
+
+    if (rule == null) {
+      throw new IllegalArgumentException("rule cannot be null");
+    }
+
+    this.title = title;
+    this.first = first;
+    this.attendees.addAll(attendees);
+    this.rule = rule;
+    this.period = rule.periodMinutes();
+    this.offsets = rule.offsetsFrom(first.start());
+  }
+
+  /**
+   * Returns the human-readable name for this event.
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Returns when the first occurrence takes place.
+   */
+  public HorizonRange getFirst() {
+    return first;
+  }
+
+  /**
+   * Returns a read-only set of required attendees for every occurrence.
+   */
+  public Set<String> getAttendees() {
+    return Collections.unmodifiableSet(attendees);
+  }
+
+  /**
+   * Returns how the event repeats.
+   */
+  public RecurrenceRule getRule() {
+    return rule;
+  }
+
+  /**
+   * Returns a read-only list of the occurrences that overlap {@code window}, sorted by start. The
+   * ranges are not clipped to the window.
+   */
+  public List<HorizonRange> occurrences(HorizonRange window) {
+    synchronized (expansions) {
+      List<HorizonRange> cached = expansions.get(window);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    List<HorizonRange> expanded = Collections.unmodifiableList(expand(window));
+    synchronized (expansions) {
+      expansions.put(window, expanded);
+    }
+    return expanded;
+  }
+
+  /**
+   * Returns the occurrences that overlap the day {@code epochDay} days after the epoch, clipped to
+   * that day, as single-day events that {@link FindMeetingQuery} can use.
+   */
+  public List<Event> eventsOn(long epochDay) {
+    HorizonRange day = HorizonRange.ofDays(epochDay, 1);
+    List<Event> events = new ArrayList<>();
+    for (HorizonRange occurrence : occurrences(day)) {
+      int start = (int) (Math.max(occurrence.start(), day.start()) - day.start());
+      int end = (int) (Math.min(occurrence.end(), day.end()) - day.start());
+      events.add(new Event(title, TimeRange.fromStartEnd(start, end, false), attendees));
+    }
+    return events;
+  }
+
+  private List<HorizonRange> expand(HorizonRange window) {
+    List<HorizonRange> occurrences = new ArrayList<>();
+    long duration = first.duration();
+    long lastOffset = offsets[offsets.length - 1];
+
+    // The first period that can reach into the window, and the last one that starts before the
+    // window is over.
+    long firstPeriod =
+        Math.max(0, Math.floorDiv(window.start() - duration - lastOffset - first.start(), period));
+    long lastPeriod = Math.floorDiv(window.end() - first.start(), period);
+
+    for (long k = firstPeriod; k <= lastPeriod; ++k) {
+      for (int j = 0; j < offsets.length; ++j) {
+        if (k * offsets.length + j >= rule.maxOccurrences()) {
+          return occurrences;
+        }
+
+        long start = first.start() + k * period + offsets[j];
+        if (start >= rule.endMinute() || start >= window.end()) {
+          return occurrences;
+        }
+
+        HorizonRange occurrence = HorizonRange.fromStartDuration(start, duration);
+        if (occurrence.overlaps(window)) {
+          occurrences.add(occurrence);
+        }
+      }
+    }
+    return occurrences;
+  }
+}
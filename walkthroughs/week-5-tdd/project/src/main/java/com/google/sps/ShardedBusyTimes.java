@@ -0,0 +1,59 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task that merges the busy blocks of a shard of attendees into one sorted array of
+ * {@link BusyBlocks}, packed with {@link PackedMeetingQuery#pack}. Large shards are split in half,
+ * and the two halves' blocks are merged in one linear pass.
+ */
+final class ShardedBusyTimes extends RecursiveTask<long[]> {
+  // Shards with this many attendees or fewer are merged on the current thread.
+  private static final int SHARD_SIZE = 256;
+
+  private final AttendeeIndex index;
+  private final String[] attendees;
+  private final int from;
+  private final int to;
+
+  ShardedBusyTimes(AttendeeIndex index, String[] attendees, int from, int to) {
+    this.index = index;
+    this.attendees = attendees;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  protected long[] compute() {
+    if (to - from <= SHARD_SIZE) {
+      List<BusyBlocks> shard = new ArrayList<>(to - from);
+      for (int i = from; i < to; ++i) {
+        shard.add(index.getBusyBlocks(attendees[i]));
+      }
+      return BusyBlocks.union(shard).packed();
+    }
+
+    int middle = (from + to) >>> 1;
+    ShardedBusyTimes left = new ShardedBusyTimes(index, attendees, from, middle);
+    ShardedBusyTimes right = new ShardedBusyTimes(index, attendees, middle, to);
+    left.fork();
+    long[] rightBlocks = right.compute();
+    return BusyBlocks.merge(left.join(), rightBlocks);
+  }
+}
@@ -0,0 +1,35 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Scores a possible meeting slot for {@link RankedMeetingQuery}. Higher scores are better.
+ */
+public interface SlotScorer {
+  /**
+   * Returns the score of the slot {@code when}, which {@code optionalAttendees} out of
+   * {@code totalOptionalAttendees} optional attendees can make.
+   */
+  double score(TimeRange when, int optionalAttendees, int totalOptionalAttendees);
+
+  /**
+   * Returns a score that no slot starting at {@code start} or later can beat. Slots are scanned in
+   * order of start time, and the scan stops once this bound is no better than the k-th best score
+   * found so far. The default never stops the scan early.
+   */
+  default double bestScoreFrom(int start, int duration, int totalOptionalAttendees) {
+    return Double.POSITIVE_INFINITY;
+  }
+}
@@ -0,0 +1,137 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * When an attendee is willing to meet: a window of local time on certain days of the week, in the
+ * attendee's own time zone. A window whose end is before its start runs overnight into the next
+ * day.
+ */
+public final class WorkingHours {
+  private final ZoneId zone;
+  private final LocalTime start;
+  private final LocalTime end;
+  private final Set<DayOfWeek> days;
+
+  public WorkingHours(ZoneId zone, LocalTime start, LocalTime end, Set<DayOfWeek> days) {
+    if (zone == null) {
+      throw new IllegalArgumentException("zone cannot be null");
+    }
+
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("start and end cannot be null");
+    }
+
+    if (days == null) {
+      throw new IllegalArgumentException("days cannot be null. Use empty set instead.");
+    }
+
+    this.zone = zone;
+    this.start = start;
+    this.end = end;
+    this.days = days.isEmpty()
+        ? Collections.<DayOfWeek>emptySet()
+        : Collections.unmodifiableSet(EnumSet.copyOf(days));
+  }
+
+  /**
+   * Returns working hours from {@code start} to {@code end} on Monday through Friday.
+   */
+  public static WorkingHours weekdays(ZoneId zone, LocalTime start, LocalTime end) {
+    return new WorkingHours(zone, start, end, EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY));
+  }
+
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  public LocalTime getStart() {
+    return start;
+  }
+
+  public LocalTime getEnd() {
+    return end;
+  }
+
+  /**
+   * Returns a read-only set of the days the window starts on.
+   */
+  public Set<DayOfWeek> getDays() {
+    return days;
+  }
+
+  /**
+   * Returns the parts of the calendar's {@code day} in {@code calendarZone} that fall inside these
+   * working hours, as minutes since the start of that day, sorted by start.
+   */
+  List<TimeRange> workingTimes(LocalDate day, ZoneId calendarZone) {
+    Instant dayStart = day.atStartOfDay(calendarZone).toInstant();
+    int dayLength = TimeRange.WHOLE_DAY.duration();
+
+    // The calendar's day can overlap three local days in the attendee's zone, plus one more for a
+    // window that started the evening before and runs overnight.
+    LocalDate localDay = dayStart.atZone(zone).toLocalDate();
+    List<TimeRange> working = new ArrayList<>();
+    for (LocalDate date = localDay.minusDays(1); !date.isAfter(localDay.plusDays(2));
+        date = date.plusDays(1)) {
+      if (!days.contains(date.getDayOfWeek())) {
+        continue;
+      }
+
+      Instant windowStart = date.atTime(start).atZone(zone).toInstant();
+      LocalDate endDate = end.isAfter(start) ? date : date.plusDays(1);
+      Instant windowEnd = endDate.atTime(end).atZone(zone).toInstant();
+
+      int from = clamp(Duration.between(dayStart, windowStart).toMinutes(), dayLength);
+      int to = clamp(Duration.between(dayStart, windowEnd).toMinutes(), dayLength);
+      if (from < to) {
+        working.add(TimeRange.fromStartEnd(from, to, false));
+      }
+    }
+    return working;
+  }
+
+  private static int clamp(long minutes, int dayLength) {
+    return (int) Math.max(0, Math.min(dayLength, minutes));
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(zone, start, end, days);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof WorkingHours)) {
+      return false;
+    }
+    WorkingHours hours = (WorkingHours) other;
+    return zone.equals(hours.zone) && start.equals(hours.start) && end.equals(hours.end)
+        && days.equals(hours.days);
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everyone's working hours for one calendar day, compiled into {@link BusyBlocks} that cover the
+ * time each attendee is off. The time zone math is done once here; a query only has to merge
+ * the masks with the attendees' busy blocks. Attendees that share working hours share one mask,
+ * so a team spread over a handful of time zones only costs a handful of masks per query. Masks
+ * are read-only and can be shared across threads.
+ */
+public final class WorkingHoursMasks {
+  /** Masks under which everyone is available all day. */
+  public static final WorkingHoursMasks NONE =
+      new WorkingHoursMasks(Collections.<String, BusyBlocks>emptyMap());
+
+  private final Map<String, BusyBlocks> offHours;
+
+  private WorkingHoursMasks(Map<String, BusyBlocks> offHours) {
+    this.offHours = offHours;
+  }
+
+  /**
+   * Compiles the masks for the calendar's {@code day} in {@code calendarZone}. Attendees without
+   * a profile are available all day.
+   */
+  public static WorkingHoursMasks compile(
+      Map<String, WorkingHours> profiles, LocalDate day, ZoneId calendarZone) {
+    Map<WorkingHours, BusyBlocks> compiled = new HashMap<>();
+    Map<String, BusyBlocks> offHours = new HashMap<>();
+    for (Map.Entry<String, WorkingHours> entry : profiles.entrySet()) {
+      BusyBlocks mask = compiled.get(entry.getValue());
+      if (mask == null) {
+        mask = offHours(entry.getValue().workingTimes(day, calendarZone));
+        compiled.put(entry.getValue(), mask);
+      }
+      offHours.put(entry.getKey(), mask);
+    }
+    return new WorkingHoursMasks(offHours);
+  }
+
+  /**
+   * Returns the blocks of the day {@code attendee} is not working.
+   */
+  public BusyBlocks getOffHours(String attendee) {
+    BusyBlocks mask = offHours.get(attendee);
+    return mask == null ? BusyBlocks.EMPTY : mask;
+  }
+
+  // Turns the sorted working times into the gaps around them.
+  private static BusyBlocks offHours(List<TimeRange> working) {
+    List<TimeRange> off = new ArrayList<>();
+    int gapStart = TimeRange.START_OF_DAY;
+    for (TimeRange range : working) {
+      if (range.start() > gapStart) {
+        off.add(TimeRange.fromStartEnd(gapStart, range.start(), false));
+      }
+      gapStart = Math.max(gapStart, range.end());
+    }
+    if (gapStart < TimeRange.WHOLE_DAY.end()) {
+      off.add(TimeRange.fromStartEnd(gapStart, TimeRange.WHOLE_DAY.end(), false));
+    }
+    return BusyBlocks.of(off);
+  }
+}
@@ -0,0 +1,290 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.EventStore;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.QueryCache;
+import com.google.sps.QueryMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers the same JSON as {@code /query}, or an array of requests like {@code /query-batch},
+ * without holding a container thread while it works. The body is read and the answer written with
+ * non-blocking I/O, so a slow client only costs a callback whenever its socket is ready, and the
+ * queries themselves run on a small pool of this servlet's own.
+ *
+ * <p>The pool has one thread per processor and a short queue. When the queue is full the request
+ * is turned away with a 503 and a {@code Retry-After} header instead of piling up, and a request
+ * that hasn't been answered within the timeout gets a 503 as well. The queries themselves don't
+ * check for interrupts, so a timed out request keeps its pool thread until the query it is on
+ * finishes; a batch then skips the rest of its queries.
+ */
+@WebServlet(urlPatterns = "/query-async", asyncSupported = true)
+public class AsyncQueryServlet extends HttpServlet {
+  private static final long TIMEOUT_MILLIS = 10_000;
+  private static final int QUEUE_CAPACITY = 64;
+  private static final int MAX_BODY_BYTES = 1 << 20;
+  private static final int CHUNK_BYTES = 8 << 10;
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  private EventStore eventStore;
+  private QueryCache queryCache;
+  private ThreadPoolExecutor executor;
+
+  @Override
+  public void init() {
+    eventStore = EventStoreInitializer.getStore(getServletContext());
+    queryCache = EventStoreInitializer.getQueryCache(getServletContext());
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadCount = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+          Thread thread = new Thread(runnable, "async-query-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    AsyncContext async = request.startAsync();
+    async.setTimeout(TIMEOUT_MILLIS);
+    Exchange exchange = new Exchange(async, request.getInputStream(), response);
+    async.addListener(exchange);
+    exchange.in.setReadListener(exchange);
+  }
+
+  /**
+   * Answers the single request or array of requests read by {@code reader} against one version of
+   * the calendar, and returns the JSON to send back.
+   */
+  private byte[] answer(JsonReader reader) throws IOException {
+    EventStore.Snapshot snapshot = eventStore.snapshot();
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    JsonWriter writer = new JsonWriter(new OutputStreamWriter(json, StandardCharsets.UTF_8));
+
+    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+      // Answered one after another: the pool already bounds how much of the machine queries get,
+      // and fanning a batch out to the common pool would get around that.
+      List<MeetingRequest> requests = JsonCodec.readMeetingRequests(reader);
+      FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+      writer.beginArray();
+      for (MeetingRequest request : requests) {
+        // A single query can't be stopped part way, but a batch can stop between queries once
+        // the timeout has cancelled it.
+        if (Thread.currentThread().isInterrupted()) {
+          throw new CancellationException("Query timed out");
+        }
+        JsonCodec.writeTimeRanges(
+            writer, findMeetingQuery.queryWithOptionalAttendees(snapshot.getIndex(), request));
+      }
+      writer.endArray();
+    } else {
+      MeetingRequest request = JsonCodec.readMeetingRequest(reader);
+      JsonCodec.writeTimeRanges(writer, QueryServlet.answer(snapshot, queryCache, request));
+    }
+
+    writer.flush();
+    return json.toByteArray();
+  }
+
+  /**
+   * One request's trip through the servlet: reading the body as it arrives, answering it on the
+   * pool, and writing the answer as the client takes it. Whichever of the answer, an error or the
+   * timeout comes first gets to respond; the others are dropped.
+   */
+  private final class Exchange implements ReadListener, WriteListener, AsyncListener {
+    private final AsyncContext async;
+    private final ServletInputStream in;
+    private final HttpServletResponse response;
+    private final long startNanos = System.nanoTime();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final byte[] buffer = new byte[CHUNK_BYTES];
+    private final AtomicBoolean responding = new AtomicBoolean();
+
+    private volatile Future<?> task;
+    private volatile long allocatedBytes;
+    private ServletOutputStream out;
+    private byte[] json;
+    private int written;
+
+    Exchange(AsyncContext async, ServletInputStream in, HttpServletResponse response) {
+      this.async = async;
+      this.in = in;
+      this.response = response;
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+      while (!responding.get() && in.isReady()) {
+        int read = in.read(buffer);
+        if (read < 0) {
+          return;
+        }
+        body.write(buffer, 0, read);
+        if (body.size() > MAX_BODY_BYTES) {
+          fail(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request body is too large");
+        }
+      }
+    }
+
+    @Override
+    public void onAllDataRead() {
+      if (responding.get()) {
+        return;
+      }
+      try {
+        task = executor.submit(this::compute);
+      } catch (RejectedExecutionException e) {
+        fail(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many queries in progress");
+      }
+    }
+
+    private void compute() {
+      long startBytes = ThreadAllocation.currentBytes();
+      byte[] answer;
+      try (JsonReader reader = new JsonReader(new InputStreamReader(
+          new ByteArrayInputStream(body.toByteArray()), StandardCharsets.UTF_8))) {
+        answer = answer(reader);
+      } catch (CancellationException e) {
+        // The timeout has already answered.
+        return;
+      } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+        // The whole body is already in memory, so any I/O error here is bad JSON.
+        fail(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        return;
+      } catch (RuntimeException e) {
+        // Anything else would vanish into the Future and leave the client waiting for the timeout.
+        log("Could not answer an async query", e);
+        fail(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Could not answer the query");
+        return;
+      }
+      allocatedBytes = ThreadAllocation.currentBytes() - startBytes;
+
+      if (!responding.compareAndSet(false, true)) {
+        return;
+      }
+      json = answer;
+      response.setContentType("application/json");
+      response.setCharacterEncoding("UTF-8");
+      response.setContentLength(json.length);
+      try {
+        out = response.getOutputStream();
+        out.setWriteListener(this);
+      } catch (IOException | IllegalStateException e) {
+        onError(e);
+      }
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+      while (out.isReady()) {
+        if (written == json.length) {
+          async.complete();
+          QueryMetrics.global().recordRequest(System.nanoTime() - startNanos, allocatedBytes);
+          return;
+        }
+        int length = Math.min(CHUNK_BYTES, json.length - written);
+        out.write(json, written, length);
+        written += length;
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      // The client went away or the connection broke, so there is nobody left to tell.
+      responding.set(true);
+      log("Async query failed", t);
+      async.complete();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      Future<?> task = this.task;
+      if (task != null) {
+        task.cancel(true);
+      }
+      if (responding.get()) {
+        // Part of the answer may already be out, so all that is left is to end the response.
+        async.complete();
+      } else {
+        fail(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Query timed out");
+      }
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      onError(event.getThrowable());
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {}
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+
+    private void fail(int status, String message) {
+      if (!responding.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+          response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        }
+        response.sendError(status, message);
+      } catch (IOException e) {
+        log("Could not send an error", e);
+      } finally {
+        async.complete();
+      }
+    }
+  }
+}
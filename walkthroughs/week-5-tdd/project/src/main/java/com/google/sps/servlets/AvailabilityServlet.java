@@ -0,0 +1,64 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.google.sps.Availability;
+import com.google.sps.EventStore;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers how many of a request's attendees, required and optional alike, are free at each minute
+ * of the day. The request body is the same JSON that {@code /query} takes; the duration is
+ * ignored and may be left out.
+ */
+@WebServlet("/availability")
+public class AvailabilityServlet extends HttpServlet {
+
+  private EventStore eventStore;
+
+  @Override
+  public void init() {
+    eventStore = EventStoreInitializer.getStore(getServletContext());
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<String> attendees;
+    try (JsonReader reader = new JsonReader(request.getReader())) {
+      attendees = JsonCodec.readAttendees(reader);
+    } catch (EOFException | MalformedJsonException | IllegalStateException
+        | IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    Availability availability = Availability.of(eventStore.snapshot().getIndex(), attendees);
+
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    JsonCodec.writeAvailability(writer, availability);
+    writer.flush();
+  }
+}
@@ -0,0 +1,127 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventLog;
+import com.google.sps.EventStore;
+import com.google.sps.Events;
+import com.google.sps.QueryCache;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Creates the calendar's {@code EventStore} when the app starts, seeded with the sample events,
+ * and shares it with every servlet through the servlet context, along with a cache of query
+ * answers that follows the store's changes.
+ *
+ * <p>If the {@code eventStore.directory} system property is set, the store is kept in an
+ * {@code EventLog} in that directory so that changes survive a restart, and a snapshot is written
+ * every few minutes and when the app shuts down. Otherwise the store only lives in memory.
+ */
+@WebListener
+public class EventStoreInitializer implements ServletContextListener {
+  private static final String STORE_ATTRIBUTE = EventStore.class.getName();
+  private static final String CACHE_ATTRIBUTE = QueryCache.class.getName();
+  private static final int QUERY_CACHE_SIZE = 4096;
+  private static final String DIRECTORY_PROPERTY = "eventStore.directory";
+  private static final long CHECKPOINT_MINUTES = 5;
+  private static final long CHECKPOINT_SHUTDOWN_SECONDS = 30;
+
+  private EventLog eventLog;
+  private ScheduledExecutorService checkpoints;
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    EventStore store;
+    String directory = System.getProperty(DIRECTORY_PROPERTY);
+    if (directory == null) {
+      store = new EventStore(Arrays.asList(Events.events));
+    } else {
+      try {
+        eventLog = EventLog.open(Paths.get(directory));
+        store = eventLog.recover(Arrays.asList(Events.events));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not load the events from " + directory, e);
+      }
+
+      checkpoints = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-log-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+      });
+      checkpoints.scheduleWithFixedDelay(() -> {
+        try {
+          eventLog.checkpoint();
+        } catch (IOException e) {
+          // The log still holds every change, so the next checkpoint can try again.
+          event.getServletContext().log("Could not checkpoint the event log", e);
+        }
+      }, CHECKPOINT_MINUTES, CHECKPOINT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    QueryCache queryCache = new QueryCache(QUERY_CACHE_SIZE);
+    store.addListener(queryCache);
+
+    event.getServletContext().setAttribute(STORE_ATTRIBUTE, store);
+    event.getServletContext().setAttribute(CACHE_ATTRIBUTE, queryCache);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    event.getServletContext().removeAttribute(STORE_ATTRIBUTE);
+    event.getServletContext().removeAttribute(CACHE_ATTRIBUTE);
+
+    if (eventLog != null) {
+      // Let a checkpoint that is already running finish rather than interrupting it.
+      checkpoints.shutdown();
+      try {
+        if (!checkpoints.awaitTermination(CHECKPOINT_SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+          event.getServletContext().log("Gave up waiting for the event log checkpoint");
+        }
+        // Start the next run from a fresh snapshot instead of replaying the log.
+        eventLog.checkpoint();
+        eventLog.close();
+      } catch (IOException e) {
+        event.getServletContext().log("Could not close the event log", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        event.getServletContext().log("Interrupted while closing the event log", e);
+      }
+    }
+  }
+
+  /**
+   * Returns the store shared by the app's servlets.
+   */
+  static EventStore getStore(ServletContext context) {
+    return (EventStore) context.getAttribute(STORE_ATTRIBUTE);
+  }
+
+  /**
+   * Returns the query cache shared by the app's servlets.
+   */
+  static QueryCache getQueryCache(ServletContext context) {
+    return (QueryCache) context.getAttribute(CACHE_ATTRIBUTE);
+  }
+}
@@ -14,23 +14,124 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
-import com.google.gson.Gson;
+import com.google.sps.EventStore;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.io.UncheckedIOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Returns every event as JSON. The JSON for a version of the calendar is built the first time it
+ * is asked for and reused until the calendar changes, and clients that already have it get a 304
+ * instead.
+ */
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
+
+  private EventStore eventStore;
+  private volatile Payload cached;
+
+  @Override
+  public void init() {
+    eventStore = EventStoreInitializer.getStore(getServletContext());
+  }
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    Payload payload = payloadFor(eventStore.snapshot());
+    response.setHeader("ETag", payload.etag);
+
+    if (matches(request.getHeader("If-None-Match"), payload.etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
 
     // Send the JSON back as the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.setCharacterEncoding("UTF-8");
+    response.setContentLength(payload.bytes.length);
+    response.getOutputStream().write(payload.bytes);
+  }
+
+  private Payload payloadFor(EventStore.Snapshot snapshot) {
+    Payload payload = cached;
+    if (payload != null && payload.version == snapshot.getVersion()) {
+      return payload;
+    }
+
+    // Two threads may both encode a new version; they produce the same bytes, so either can win.
+    payload = new Payload(snapshot.getVersion(), encode(snapshot));
+    cached = payload;
+    return payload;
+  }
+
+  private static byte[] encode(EventStore.Snapshot snapshot) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (JsonWriter writer =
+        new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+      JsonCodec.writeEvents(writer, snapshot.getEvents());
+    } catch (IOException e) {
+      // Writing to memory never fails.
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns a strong ETag for {@code payload}, made from the start of its SHA-256 hash.
+   */
+  static String strongEtag(byte[] payload) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(payload);
+      StringBuilder etag = new StringBuilder("\"");
+      for (int i = 0; i < 16; ++i) {
+        etag.append(String.format("%02x", hash[i]));
+      }
+      return etag.append('"').toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Checks an {@code If-None-Match} header, which may list several ETags or be {@code *}.
+   */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      // A weak match is enough for If-None-Match.
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Payload {
+    final long version;
+    final byte[] bytes;
+    final String etag;
+
+    Payload(long version, byte[] bytes) {
+      this.version = version;
+      this.bytes = bytes;
+      this.etag = strongEtag(bytes);
+    }
   }
 }
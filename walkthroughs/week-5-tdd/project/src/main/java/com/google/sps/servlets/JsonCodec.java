@@ -0,0 +1,239 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Availability;
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the scheduler's JSON one token at a time, without building an intermediate
+ * tree or going through reflection. The JSON keeps the shape the web page expects no matter how
+ * the classes store their data. The codec keeps no state, so every servlet can share it across
+ * threads.
+ */
+final class JsonCodec {
+  private JsonCodec() {}
+
+  /**
+   * Reads a meeting request such as
+   * {@code {"duration": 30, "attendees": ["Ava"], "optional_attendees": ["Emma"]}}. Missing
+   * attendee lists are treated as empty, and unknown fields are skipped.
+   */
+  static MeetingRequest readMeetingRequest(JsonReader reader) throws IOException {
+    RequestFields fields = readRequestFields(reader);
+    MeetingRequest request = new MeetingRequest(fields.attendees, fields.duration);
+    for (String attendee : fields.optionalAttendees) {
+      request.addOptionalAttendee(attendee);
+    }
+    return request;
+  }
+
+  /**
+   * Reads the same JSON as {@link #readMeetingRequest(JsonReader)}, but only returns the required
+   * and optional attendees together. The duration is not needed and may be left out.
+   */
+  static List<String> readAttendees(JsonReader reader) throws IOException {
+    RequestFields fields = readRequestFields(reader);
+    List<String> attendees = new ArrayList<>(fields.attendees);
+    attendees.addAll(fields.optionalAttendees);
+    return attendees;
+  }
+
+  /**
+   * Reads a JSON array of meeting requests.
+   */
+  static List<MeetingRequest> readMeetingRequests(JsonReader reader) throws IOException {
+    List<MeetingRequest> requests = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      requests.add(readMeetingRequest(reader));
+    }
+    reader.endArray();
+    return requests;
+  }
+
+  /**
+   * Reads an event such as
+   * {@code {"title": "Lunch", "when": {"start": 720, "duration": 60}, "attendees": ["Ava"]}}.
+   * Times that don't fall within the day are rejected with an {@code IllegalArgumentException},
+   * since every query trusts the stored events to stay inside it.
+   */
+  static Event readEvent(JsonReader reader) throws IOException {
+    String title = null;
+    TimeRange when = null;
+    List<String> attendees = new ArrayList<>();
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.skipValue();
+      } else if (name.equals("title")) {
+        title = reader.nextString();
+      } else if (name.equals("when")) {
+        when = readTimeRange(reader);
+      } else if (name.equals("attendees")) {
+        readStrings(reader, attendees);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    // Event rejects a missing title or time with an IllegalArgumentException.
+    return new Event(title, when, attendees);
+  }
+
+  /**
+   * Reads a JSON array of events.
+   */
+  static List<Event> readEvents(JsonReader reader) throws IOException {
+    List<Event> events = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      events.add(readEvent(reader));
+    }
+    reader.endArray();
+    return events;
+  }
+
+  /**
+   * Writes {@code ranges} as an array of {@code {"start": 0, "duration": 480}} objects.
+   */
+  static void writeTimeRanges(JsonWriter writer, Collection<TimeRange> ranges)
+      throws IOException {
+    writer.beginArray();
+    for (TimeRange range : ranges) {
+      writeTimeRange(writer, range);
+    }
+    writer.endArray();
+  }
+
+  /**
+   * Writes {@code events} as an array of
+   * {@code {"title": "...", "when": {...}, "attendees": [...]}} objects.
+   */
+  static void writeEvents(JsonWriter writer, Collection<Event> events) throws IOException {
+    writer.beginArray();
+    for (Event event : events) {
+      writer.beginObject();
+      writer.name("title").value(event.getTitle());
+      writer.name("when");
+      writeTimeRange(writer, event.getWhen());
+      writer.name("attendees");
+      writer.beginArray();
+      for (String attendee : event.getAttendees()) {
+        writer.value(attendee);
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+    writer.endArray();
+  }
+
+  /**
+   * Writes {@code availability} as {@code {"attendees": 3, "free": [3, 3, 2, ...]}}, with one free
+   * count for every minute of the day.
+   */
+  static void writeAvailability(JsonWriter writer, Availability availability)
+      throws IOException {
+    writer.beginObject();
+    writer.name("attendees").value(availability.getAttendeeCount());
+    writer.name("free");
+    writer.beginArray();
+    for (int free : availability.toArray()) {
+      writer.value(free);
+    }
+    writer.endArray();
+    writer.endObject();
+  }
+
+  private static void writeTimeRange(JsonWriter writer, TimeRange range) throws IOException {
+    writer.beginObject();
+    writer.name("start").value(range.start());
+    writer.name("duration").value(range.duration());
+    writer.endObject();
+  }
+
+  private static RequestFields readRequestFields(JsonReader reader) throws IOException {
+    RequestFields fields = new RequestFields();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.skipValue();
+      } else if (name.equals("attendees")) {
+        readStrings(reader, fields.attendees);
+      } else if (name.equals("optional_attendees") || name.equals("optionalAttendees")) {
+        readStrings(reader, fields.optionalAttendees);
+      } else if (name.equals("duration")) {
+        // The web page sends the duration as a string, which nextLong() also accepts.
+        fields.duration = reader.nextLong();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return fields;
+  }
+
+  private static TimeRange readTimeRange(JsonReader reader) throws IOException {
+    int start = 0;
+    int duration = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("start")) {
+        start = reader.nextInt();
+      } else if (name.equals("duration")) {
+        duration = reader.nextInt();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (start < TimeRange.START_OF_DAY || duration < 0
+        || (long) start + duration > TimeRange.WHOLE_DAY.duration()) {
+      throw new IllegalArgumentException("event times must fall within the day");
+    }
+    return TimeRange.fromStartDuration(start, duration);
+  }
+
+  private static void readStrings(JsonReader reader, List<String> strings) throws IOException {
+    reader.beginArray();
+    while (reader.hasNext()) {
+      strings.add(reader.nextString());
+    }
+    reader.endArray();
+  }
+
+  /** The fields of a meeting request as they appear in the JSON. */
+  private static final class RequestFields {
+    final List<String> attendees = new ArrayList<>();
+    final List<String> optionalAttendees = new ArrayList<>();
+    long duration;
+  }
+}
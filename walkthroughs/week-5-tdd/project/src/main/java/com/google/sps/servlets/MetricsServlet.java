@@ -0,0 +1,59 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.QueryCache;
+import com.google.sps.QueryMetrics;
+import java.io.IOException;
+import java.io.Writer;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the scheduler's metrics in the Prometheus text format, so that a Prometheus server can
+ * scrape them.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+  private QueryCache queryCache;
+
+  @Override
+  public void init() {
+    queryCache = EventStoreInitializer.getQueryCache(getServletContext());
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("text/plain; version=0.0.4");
+    response.setCharacterEncoding("UTF-8");
+
+    Writer out = response.getWriter();
+    QueryMetrics.global().writePrometheus(out);
+
+    QueryMetrics.writeHeader(out, "scheduler_query_cache_hits_total", "counter",
+        "Lookups that found a valid cached answer.");
+    out.write("scheduler_query_cache_hits_total " + queryCache.getHits() + "\n");
+    QueryMetrics.writeHeader(out, "scheduler_query_cache_misses_total", "counter",
+        "Lookups that had to compute the answer.");
+    out.write("scheduler_query_cache_misses_total " + queryCache.getMisses() + "\n");
+    QueryMetrics.writeHeader(out, "scheduler_query_cache_entries", "gauge",
+        "Answers held by the query cache.");
+    out.write("scheduler_query_cache_entries " + queryCache.size() + "\n");
+    out.flush();
+  }
+}
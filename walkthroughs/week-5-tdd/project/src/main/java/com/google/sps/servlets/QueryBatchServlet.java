@@ -0,0 +1,82 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.AttendeeIndex;
+import com.google.sps.EventStore;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers a JSON array of meeting requests in one call. The response is a JSON array holding the
+ * possible times for each request, in the same order as the requests.
+ */
+@WebServlet("/query-batch")
+public class QueryBatchServlet extends HttpServlet {
+
+  // Batches smaller than this are answered on the request thread. Splitting them up across
+  // threads costs more than it saves.
+  private static final int PARALLEL_BATCH_SIZE = 64;
+
+  private EventStore eventStore;
+
+  @Override
+  public void init() {
+    eventStore = EventStoreInitializer.getStore(getServletContext());
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Parse the JSON straight into a list of MeetingRequests.
+    List<MeetingRequest> meetingRequests;
+    try (JsonReader reader = new JsonReader(request.getReader())) {
+      meetingRequests = JsonCodec.readMeetingRequests(reader);
+    } catch (EOFException | MalformedJsonException | IllegalStateException
+        | IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    // Find the possible meeting times for every request. Every request in the batch shares the
+    // same version of the calendar's index.
+    AttendeeIndex attendeeIndex = eventStore.snapshot().getIndex();
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    List<Collection<TimeRange>> answers = findMeetingQuery.queryAll(
+        attendeeIndex, meetingRequests, meetingRequests.size() >= PARALLEL_BATCH_SIZE);
+
+    // Stream the times back as JSON
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginArray();
+    for (Collection<TimeRange> answer : answers) {
+      JsonCodec.writeTimeRanges(writer, answer);
+    }
+    writer.endArray();
+    writer.flush();
+  }
+}
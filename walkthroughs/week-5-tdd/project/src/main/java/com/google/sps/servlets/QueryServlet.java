@@ -14,13 +14,17 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.EventStore;
 import com.google.sps.FindMeetingQuery;
 import com.google.sps.MeetingRequest;
+import com.google.sps.QueryCache;
+import com.google.sps.QueryMetrics;
 import com.google.sps.TimeRange;
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -29,23 +33,62 @@ import javax.servlet.http.HttpServletResponse;
 
 @WebServlet("/query")
 public class QueryServlet extends HttpServlet {
+
+  private EventStore eventStore;
+  private QueryCache queryCache;
+
   @Override
-  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
+  public void init() {
+    // The store keeps everyone's busy bitmaps up to date as the calendar changes.
+    eventStore = EventStoreInitializer.getStore(getServletContext());
+    queryCache = EventStoreInitializer.getQueryCache(getServletContext());
+  }
 
-    // Convert the JSON to an instance of MeetingRequest.
-    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    long startNanos = System.nanoTime();
+    long startBytes = ThreadAllocation.currentBytes();
 
-    // Find the possible meeting times.
-    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
+    // Parse the JSON straight into an instance of MeetingRequest.
+    MeetingRequest meetingRequest;
+    try (JsonReader reader = new JsonReader(request.getReader())) {
+      meetingRequest = JsonCodec.readMeetingRequest(reader);
+    } catch (EOFException | MalformedJsonException | IllegalStateException
+        | IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
 
-    // Convert the times to JSON
-    String jsonResponse = gson.toJson(answer);
+    // Find the possible meeting times against a single version of the calendar.
+    Collection<TimeRange> answer = answer(eventStore.snapshot(), queryCache, meetingRequest);
 
-    // Send the JSON back as the response
+    // Stream the times back as JSON
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.setCharacterEncoding("UTF-8");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    JsonCodec.writeTimeRanges(writer, answer);
+    writer.flush();
+
+    QueryMetrics.global().recordRequest(
+        System.nanoTime() - startNanos, ThreadAllocation.currentBytes() - startBytes);
+  }
+
+  /**
+   * Returns the possible times for {@code request} in {@code snapshot}, from {@code cache} if it
+   * has already been answered.
+   */
+  static Collection<TimeRange> answer(
+      EventStore.Snapshot snapshot, QueryCache cache, MeetingRequest request) {
+    Collection<TimeRange> answer = cache.get(snapshot, request);
+    if (answer == null) {
+      if (request.getOptionalAttendees().isEmpty()) {
+        answer = snapshot.getBusyBitmaps().query(request);
+      } else {
+        FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+        answer = findMeetingQuery.queryWithOptionalAttendees(snapshot.getIndex(), request);
+      }
+      cache.put(snapshot, request, answer);
+    }
+    return answer;
   }
 }
@@ -0,0 +1,68 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads how many bytes the current thread has allocated so far, on JVMs that track it. The
+ * difference between two readings estimates what the code in between allocated. Reading it costs
+ * about as much as {@code System.nanoTime()}. Elsewhere, including JVMs without the
+ * {@code com.sun.management} extensions, every reading is 0.
+ */
+final class ThreadAllocation {
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final boolean SUPPORTED = isSupported();
+
+  private ThreadAllocation() {}
+
+  /**
+   * Returns the bytes allocated by the current thread so far, or 0 if the JVM doesn't track them.
+   */
+  static long currentBytes() {
+    return SUPPORTED ? Hotspot.allocatedBytes(THREADS) : 0;
+  }
+
+  private static boolean isSupported() {
+    try {
+      return Hotspot.isEnabled(THREADS);
+    } catch (LinkageError e) {
+      // The JVM doesn't have com.sun.management at all.
+      return false;
+    }
+  }
+
+  /**
+   * The calls that need {@code com.sun.management}. They are kept out of the outer class so that
+   * it still loads on JVMs without that package, and this class is only loaded by the guarded
+   * check above.
+   */
+  private static final class Hotspot {
+    static boolean isEnabled(ThreadMXBean threads) {
+      if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+        return false;
+      }
+      com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+      return hotspotThreads.isThreadAllocatedMemorySupported()
+          && hotspotThreads.isThreadAllocatedMemoryEnabled();
+    }
+
+    static long allocatedBytes(ThreadMXBean threads) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+  }
+}
@@ -0,0 +1,83 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Changes the calendar. The body is a JSON object like {@code {"add": [...], "remove": [...]}}
+ * holding events in the same shape {@code /get-events} returns them. The whole body is applied as
+ * a single new version, which is sent back as {@code {"version": 12}}.
+ *
+ * <p>Like the rest of this demo, the servlet doesn't check who is calling, so anyone who can reach
+ * the server can change everybody's calendar. Put it behind authentication before exposing it
+ * beyond a trusted network.
+ */
+@WebServlet("/update-events")
+public class UpdateEventsServlet extends HttpServlet {
+
+  private EventStore eventStore;
+
+  @Override
+  public void init() {
+    eventStore = EventStoreInitializer.getStore(getServletContext());
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<Event> added = new ArrayList<>();
+    List<Event> removed = new ArrayList<>();
+    try (JsonReader reader = new JsonReader(request.getReader())) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if (name.equals("add")) {
+          added.addAll(JsonCodec.readEvents(reader));
+        } else if (name.equals("remove")) {
+          removed.addAll(JsonCodec.readEvents(reader));
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+    } catch (EOFException | MalformedJsonException | IllegalStateException
+        | IllegalArgumentException e) {
+      // IllegalArgumentException also covers NumberFormatException, events missing a field and
+      // times outside the day.
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    EventStore.Snapshot snapshot = eventStore.apply(added, removed);
+
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginObject().name("version").value(snapshot.getVersion()).endObject();
+    writer.flush();
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AttendeeDictionaryTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  @Test
+  public void idsAreStable() {
+    AttendeeDictionary dictionary = new AttendeeDictionary();
+
+    int a = dictionary.intern(PERSON_A);
+    int b = dictionary.intern(PERSON_B);
+
+    Assert.assertEquals(a, dictionary.intern(PERSON_A));
+    Assert.assertEquals(b, dictionary.find(PERSON_B));
+    Assert.assertEquals(-1, dictionary.find(PERSON_C));
+    Assert.assertEquals(PERSON_A, dictionary.nameOf(a));
+    Assert.assertEquals(2, dictionary.size());
+  }
+
+  @Test
+  public void internedCollectionsAreSortedWithoutDuplicates() {
+    AttendeeDictionary dictionary = new AttendeeDictionary();
+    dictionary.intern(PERSON_C);
+
+    int[] ids = dictionary.intern(Arrays.asList(PERSON_B, PERSON_C, PERSON_A, PERSON_B));
+
+    Assert.assertArrayEquals(new int[] {0, 1, 2}, ids);
+  }
+
+  @Test
+  public void intersection() {
+    Assert.assertTrue(AttendeeDictionary.intersects(new int[] {1, 4, 9}, new int[] {2, 4}));
+    Assert.assertFalse(AttendeeDictionary.intersects(new int[] {1, 4, 9}, new int[] {2, 5, 10}));
+    Assert.assertFalse(AttendeeDictionary.intersects(new int[] {}, new int[] {2}));
+  }
+
+  @Test
+  public void eventsKeepTheirAttendeeNames() {
+    Event event = new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_B, PERSON_A));
+
+    Assert.assertEquals(new HashSet<>(Arrays.asList(PERSON_A, PERSON_B)), event.getAttendees());
+    Assert.assertTrue(event.getAttendees().contains(PERSON_A));
+    Assert.assertFalse(event.getAttendees().contains(PERSON_C));
+    Assert.assertEquals(event,
+        new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A, PERSON_B, PERSON_A)));
+  }
+}
@@ -0,0 +1,119 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AvailabilityTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  @Test
+  public void everyoneIsFreeWithNoEvents() {
+    Availability availability = Availability.of(NO_EVENTS, Arrays.asList(PERSON_A, PERSON_B));
+
+    Assert.assertEquals(2, availability.getAttendeeCount());
+    Assert.assertEquals(2, availability.getFree(TimeRange.START_OF_DAY));
+    Assert.assertEquals(2, availability.getFree(TimeRange.END_OF_DAY));
+  }
+
+  @Test
+  public void countsOverlappingEventsOncePerAttendee() {
+    // Events  : |--A--|
+    //              |--A--|
+    //              |----B----|
+    // Day     : |---------------------|
+    // Free    : 2  1  0     1   2
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM + 15, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false),
+            Arrays.asList(PERSON_B, PERSON_C)));
+
+    Availability availability = Availability.of(events, Arrays.asList(PERSON_A, PERSON_B));
+
+    Assert.assertEquals(2, availability.getFree(TIME_0800AM - 1));
+    Assert.assertEquals(1, availability.getFree(TIME_0800AM));
+    Assert.assertEquals(0, availability.getFree(TIME_0830AM));
+    Assert.assertEquals(0, availability.getFree(TIME_0900AM));
+    Assert.assertEquals(1, availability.getFree(TIME_0900AM + 15));
+    Assert.assertEquals(2, availability.getFree(TIME_1000AM));
+  }
+
+  @Test
+  public void attendeesNamedTwiceAreCountedOnce() {
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false), Arrays.asList(PERSON_A)));
+
+    Availability availability =
+        Availability.of(events, Arrays.asList(PERSON_A, PERSON_A, PERSON_B));
+
+    Assert.assertEquals(2, availability.getAttendeeCount());
+    Assert.assertEquals(1, availability.getFree(TIME_0800AM));
+  }
+
+  @Test
+  public void matchesCountingEveryMinuteDirectly() {
+    Random random = new Random(19);
+    List<String> attendees = new ArrayList<>();
+    for (int i = 0; i < 20; ++i) {
+      attendees.add("Person " + i);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 200; ++i) {
+      int start = random.nextInt(TimeRange.END_OF_DAY);
+      int duration = random.nextInt(Math.min(120, TimeRange.END_OF_DAY - start + 1));
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(attendees.get(random.nextInt(20)), attendees.get(random.nextInt(20)))));
+    }
+
+    int[] free = Availability.of(events, attendees).toArray();
+
+    for (int minute = 0; minute < free.length; ++minute) {
+      int expected = 0;
+      for (String attendee : attendees) {
+        boolean busy = false;
+        for (Event event : events) {
+          busy |= event.getAttendees().contains(attendee) && event.getWhen().contains(minute);
+        }
+        expected += busy ? 0 : 1;
+      }
+      Assert.assertEquals(expected, free[minute]);
+    }
+  }
+}
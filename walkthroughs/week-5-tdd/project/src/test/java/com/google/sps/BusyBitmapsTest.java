@@ -0,0 +1,185 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BusyBitmapsTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  private static final Event EVENT_A = new Event("Event 1",
+      TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+  private static final Event EVENT_B = new Event("Event 2",
+      TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_B));
+
+  @Test
+  public void wholeDayWhenNoEvents() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = BusyBitmaps.of(NO_EVENTS).query(request);
+    Collection<TimeRange> expected = Arrays.asList(TimeRange.WHOLE_DAY);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void everyAttendeeIsConsidered() {
+    // Events  :       |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = BusyBitmaps.of(Arrays.asList(EVENT_A, EVENT_B)).query(request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void tooShortOpeningsAreSkipped() {
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_60_MINUTES);
+
+    Collection<TimeRange> actual = BusyBitmaps.of(Arrays.asList(EVENT_A, EVENT_B)).query(request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void addingAnEventMatchesRebuilding() {
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = BusyBitmaps.of(Arrays.asList(EVENT_A)).plus(EVENT_B)
+        .query(request);
+    Collection<TimeRange> expected =
+        BusyBitmaps.of(Arrays.asList(EVENT_A, EVENT_B)).query(request);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void batchUpdatesMatchRebuilding() {
+    Event eventC = new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), Arrays.asList(PERSON_A));
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    BusyBitmaps bitmaps = BusyBitmaps.of(Arrays.asList(EVENT_A))
+        .plusAll(Arrays.asList(EVENT_B, eventC))
+        .minusAll(Arrays.asList(EVENT_A));
+
+    Assert.assertEquals(BusyBitmaps.of(Arrays.asList(EVENT_B, eventC)).query(request),
+        bitmaps.query(request));
+    Assert.assertEquals(AttendeeIndex.of(Arrays.asList(EVENT_B, eventC)).getBusyTimes(PERSON_A),
+        bitmaps.getIndex().getBusyTimes(PERSON_A));
+  }
+
+  @Test
+  public void removingAnEventKeepsOverlappingEvents() {
+    // A is double booked, so removing one event must leave the other in place.
+    //
+    // Events  :       |----A----|
+    //                     |--A--|
+    Event longEvent = new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_0830AM, DURATION_60_MINUTES), Arrays.asList(PERSON_A));
+    Event shortEvent = new Event("Event 4",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    BusyBitmaps bitmaps = BusyBitmaps.of(Arrays.asList(longEvent, shortEvent));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true)),
+        bitmaps.minus(shortEvent).query(request));
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true)),
+        bitmaps.minus(longEvent).query(request));
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY),
+        bitmaps.minus(longEvent).minus(shortEvent).query(request));
+  }
+
+  @Test
+  public void updatesLeaveTheOriginalUnchanged() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+
+    BusyBitmaps original = BusyBitmaps.of(Arrays.asList(EVENT_A));
+    original.plus(EVENT_B);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), original.query(request));
+  }
+
+  @Test
+  public void everyPathAgreesAtTheEndOfTheDay() {
+    // The gap after the last busy block has to be a minute longer than the meeting, as in the
+    // original sweep. Bitmaps, the event scan, the index (sequential and sharded), the packed
+    // query and the optional path must all draw the line in the same place.
+    //
+    // Events  : |----------------A----------------|
+    // Day     : |--------------------------------------|
+    // Options :                                   |-?--|
+    Event event = new Event("Event 1",
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TimeRange.getTimeInMinutes(23, 30), false),
+        Arrays.asList(PERSON_A));
+    Collection<Event> events = Arrays.asList(event);
+    AttendeeIndex index = AttendeeIndex.of(events);
+    Collection<TimeRange> lastHalfHour = Arrays.asList(
+        TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(23, 30), TimeRange.END_OF_DAY, true));
+
+    for (int duration : new int[] {DURATION_30_MINUTES - 1, DURATION_30_MINUTES}) {
+      MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+      Collection<TimeRange> expected =
+          duration < DURATION_30_MINUTES ? lastHalfHour : Arrays.<TimeRange>asList();
+
+      Assert.assertEquals(expected, BusyBitmaps.of(events).query(request));
+      Assert.assertEquals(expected, new FindMeetingQuery().query(events, request));
+      Assert.assertEquals(expected, new FindMeetingQuery().query(index, request));
+      Assert.assertEquals(expected, new FindMeetingQuery(1).query(index, request));
+      Assert.assertEquals(expected, new PackedMeetingQuery().query(events, request));
+      Assert.assertEquals(
+          expected, new FindMeetingQuery().queryWithOptionalAttendees(events, request));
+    }
+  }
+}
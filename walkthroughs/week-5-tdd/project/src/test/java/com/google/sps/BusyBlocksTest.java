@@ -0,0 +1,124 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BusyBlocksTest {
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Test
+  public void noRangesMeansNoBlocks() {
+    BusyBlocks blocks = BusyBlocks.of(Collections.<TimeRange>emptyList());
+
+    Assert.assertEquals(0, blocks.size());
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY),
+        blocks.findOpenings(DURATION_30_MINUTES));
+  }
+
+  @Test
+  public void coalescesRangesThatStartTogether() {
+    // Ranges : |--A--|
+    //          |-----B-----|
+    //             |-C-|
+    // Blocks : |-----1-----|
+    BusyBlocks blocks = BusyBlocks.of(Arrays.asList(
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_1000AM, false),
+        TimeRange.fromStartEnd(TIME_0830AM, TIME_0930AM, false)));
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_1000AM, false)),
+        blocks.getBlocks());
+  }
+
+  @Test
+  public void coalescesChainsOfOverlaps() {
+    // Ranges : |--A--|
+    //              |--B--|
+    //                  |--C--|   |-D-|
+    // Blocks : |-------1-----|   |-2-|
+    BusyBlocks blocks = BusyBlocks.of(Arrays.asList(
+        TimeRange.fromStartEnd(TIME_1000AM, TIME_1100AM, false),
+        TimeRange.fromStartEnd(TIME_0830AM, TIME_0930AM, false),
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+        TimeRange.fromStartEnd(TIME_0900AM - 1, TIME_0930AM + 1, false)));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0930AM + 1, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TIME_1100AM, false)),
+        blocks.getBlocks());
+  }
+
+  @Test
+  public void keepsTouchingRangesApart() {
+    // Touching ranges leave a zero-length opening that only a zero-length request can use.
+    BusyBlocks blocks = BusyBlocks.of(Arrays.asList(
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false)));
+
+    Assert.assertEquals(2, blocks.size());
+    Assert.assertTrue(blocks.findOpenings(0).contains(
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_0900AM, false)));
+    Assert.assertFalse(blocks.findOpenings(1).contains(
+        TimeRange.fromStartEnd(TIME_0900AM, TIME_0900AM, false)));
+  }
+
+  @Test
+  public void mergeAndUnionMatchBuildingFromEveryRange() {
+    Random random = new Random(15);
+    for (int round = 0; round < 200; ++round) {
+      List<TimeRange> left = randomRanges(random);
+      List<TimeRange> right = randomRanges(random);
+      List<TimeRange> all = new ArrayList<>(left);
+      all.addAll(right);
+
+      BusyBlocks expected = BusyBlocks.of(all);
+      BusyBlocks leftBlocks = BusyBlocks.of(left);
+      BusyBlocks rightBlocks = BusyBlocks.of(right);
+
+      Assert.assertEquals(expected.getBlocks(), leftBlocks.merge(rightBlocks).getBlocks());
+      Assert.assertEquals(expected.getBlocks(),
+          BusyBlocks.union(Arrays.asList(leftBlocks, rightBlocks)).getBlocks());
+    }
+  }
+
+  private static List<TimeRange> randomRanges(Random random) {
+    int count = random.nextInt(20);
+    List<TimeRange> ranges = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      int start = random.nextInt(TimeRange.END_OF_DAY);
+      int duration = random.nextInt(Math.min(120, TimeRange.END_OF_DAY - start + 1));
+      ranges.add(TimeRange.fromStartDuration(start, duration));
+    }
+    return ranges;
+  }
+}
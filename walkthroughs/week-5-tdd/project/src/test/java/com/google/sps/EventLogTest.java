@@ -0,0 +1,237 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventLogTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  private static final Event EVENT_A = new Event("Event 1",
+      TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), Arrays.asList(PERSON_A));
+  private static final Event EVENT_B = new Event("Event 2",
+      TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+      Arrays.asList(PERSON_A, PERSON_B));
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = folder.newFolder().toPath();
+  }
+
+  @Test
+  public void startsFromTheSeed() throws IOException {
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(Arrays.asList(EVENT_A));
+
+      Assert.assertEquals(0, store.snapshot().getVersion());
+      Assert.assertEquals(Arrays.asList(EVENT_A), store.snapshot().getEvents());
+    }
+  }
+
+  @Test
+  public void changesSurviveARestart() throws IOException {
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(Arrays.asList(EVENT_A));
+      store.add(EVENT_B);
+      store.remove(EVENT_A);
+    }
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(Arrays.asList(EVENT_A));
+
+      Assert.assertEquals(2, store.snapshot().getVersion());
+      Assert.assertEquals(Arrays.asList(EVENT_B), store.snapshot().getEvents());
+      Assert.assertEquals(Arrays.asList(EVENT_B.getWhen()),
+          store.snapshot().getIndex().getBusyTimes(PERSON_B));
+    }
+  }
+
+  @Test
+  public void replaysTheLogOnTopOfTheLatestSnapshot() throws IOException {
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+      store.add(EVENT_A);
+      log.checkpoint();
+      store.add(EVENT_B);
+    }
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+
+      Assert.assertEquals(2, store.snapshot().getVersion());
+      Assert.assertEquals(Arrays.asList(EVENT_A, EVENT_B), store.snapshot().getEvents());
+    }
+  }
+
+  @Test
+  public void replayRemovesTheSameCopiesAsTheStore() throws IOException {
+    // Copies of the same event are added and removed across versions, so the order of the
+    // recovered events depends on which copy each removal took.
+    List<Event> seed = Arrays.asList(EVENT_A, EVENT_B, EVENT_A);
+    EventStore expected = new EventStore(seed);
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(seed);
+      for (EventStore changed : Arrays.asList(store, expected)) {
+        changed.apply(Arrays.asList(EVENT_A, EVENT_B), Arrays.asList(EVENT_A));
+        changed.remove(EVENT_A);
+        changed.add(EVENT_A);
+        changed.apply(Arrays.asList(EVENT_B), Arrays.asList(EVENT_B, EVENT_A));
+      }
+    }
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(seed);
+
+      Assert.assertEquals(expected.snapshot().getVersion(), store.snapshot().getVersion());
+      Assert.assertEquals(expected.snapshot().getEvents(), store.snapshot().getEvents());
+    }
+  }
+
+  @Test
+  public void dropsATornRecordAtTheEnd() throws IOException {
+    try (EventLog log = EventLog.open(directory)) {
+      log.recover(NO_EVENTS).add(EVENT_A);
+    }
+
+    // Pretend the server crashed half way through writing a record.
+    try (FileChannel channel =
+        FileChannel.open(directory.resolve("events.log"), StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3}));
+    }
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+      Assert.assertEquals(Arrays.asList(EVENT_A), store.snapshot().getEvents());
+
+      // New records must follow the last good one.
+      store.add(EVENT_B);
+    }
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+      Assert.assertEquals(Arrays.asList(EVENT_A, EVENT_B), store.snapshot().getEvents());
+    }
+  }
+
+  @Test
+  public void concurrentWritersAreAllLogged() throws Exception {
+    int numThreads = 8;
+    int eventsPerThread = 50;
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < numThreads; ++i) {
+        int thread = i;
+        threads.add(new Thread(() -> {
+          for (int j = 0; j < eventsPerThread; ++j) {
+            store.add(new Event("Event " + thread + "-" + j,
+                TimeRange.fromStartDuration(j, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+          }
+        }));
+      }
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    }
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+
+      Assert.assertEquals(numThreads * eventsPerThread, store.snapshot().getVersion());
+      Assert.assertEquals(numThreads * eventsPerThread,
+          new HashSet<>(store.snapshot().getEvents()).size());
+    }
+  }
+
+  @Test
+  public void interruptedWritersDontCloseTheLog() throws IOException {
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+
+      // A FileChannel closes itself if a thread using it is interrupted, so the writer must not
+      // touch the file on the caller's thread.
+      Thread.currentThread().interrupt();
+      try {
+        store.add(EVENT_A);
+      } catch (UncheckedIOException e) {
+        // The wait for the sync may be cut short, but the record is still written.
+      } finally {
+        Thread.interrupted();
+      }
+
+      store.add(EVENT_B);
+      log.checkpoint();
+    }
+
+    try (EventLog log = EventLog.open(directory)) {
+      EventStore store = log.recover(NO_EVENTS);
+      Assert.assertEquals(Arrays.asList(EVENT_A, EVENT_B), store.snapshot().getEvents());
+    }
+  }
+
+  @Test
+  public void closedLogsRejectChangesBeforeTheyArePublished() throws IOException {
+    EventLog log = EventLog.open(directory);
+    EventStore store = log.recover(Arrays.asList(EVENT_A));
+    EventStore.Snapshot before = store.snapshot();
+    log.close();
+
+    try {
+      store.add(EVENT_B);
+      Assert.fail("Changed a store whose log is closed");
+    } catch (UncheckedIOException e) {
+      // Expected.
+    }
+    Assert.assertSame(before, store.snapshot());
+  }
+}
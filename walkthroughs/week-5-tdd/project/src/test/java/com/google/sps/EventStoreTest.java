@@ -0,0 +1,133 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventStoreTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  private static final Event EVENT_A = new Event("Event 1",
+      TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), Arrays.asList(PERSON_A));
+  private static final Event EVENT_B = new Event("Event 2",
+      TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_B));
+
+  @Test
+  public void startsAtVersionZero() {
+    EventStore store = new EventStore(Arrays.asList(EVENT_A));
+
+    EventStore.Snapshot snapshot = store.snapshot();
+
+    Assert.assertEquals(0, snapshot.getVersion());
+    Assert.assertEquals(Arrays.asList(EVENT_A), snapshot.getEvents());
+  }
+
+  @Test
+  public void eachChangeBumpsTheVersion() {
+    EventStore store = new EventStore(NO_EVENTS);
+
+    store.add(EVENT_A);
+    store.add(EVENT_B);
+    EventStore.Snapshot snapshot = store.remove(EVENT_A);
+
+    Assert.assertEquals(3, snapshot.getVersion());
+    Assert.assertEquals(Arrays.asList(EVENT_B), snapshot.getEvents());
+    Assert.assertSame(snapshot, store.snapshot());
+  }
+
+  @Test
+  public void removingAMissingEventChangesNothing() {
+    EventStore store = new EventStore(Arrays.asList(EVENT_A));
+    EventStore.Snapshot before = store.snapshot();
+
+    EventStore.Snapshot after = store.remove(EVENT_B);
+
+    Assert.assertSame(before, after);
+  }
+
+  @Test
+  public void batchesRemoveOneCopyPerEvent() {
+    EventStore store = new EventStore(Arrays.asList(EVENT_A, EVENT_B, EVENT_A));
+
+    EventStore.Snapshot snapshot =
+        store.apply(Arrays.asList(EVENT_B), Arrays.asList(EVENT_A, EVENT_B, EVENT_B));
+
+    // Only one copy of B was there to remove; the added B stays.
+    Assert.assertEquals(1, snapshot.getVersion());
+    Assert.assertEquals(Arrays.asList(EVENT_A, EVENT_B), snapshot.getEvents());
+    Assert.assertEquals(Arrays.asList(EVENT_A.getWhen()),
+        snapshot.getIndex().getBusyTimes(PERSON_A));
+    Assert.assertEquals(Arrays.asList(EVENT_B.getWhen()),
+        snapshot.getIndex().getBusyTimes(PERSON_B));
+  }
+
+  @Test
+  public void updateIsASingleVersion() {
+    EventStore store = new EventStore(Arrays.asList(EVENT_A));
+    Event moved = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES), Arrays.asList(PERSON_A));
+
+    EventStore.Snapshot snapshot = store.update(EVENT_A, moved);
+
+    Assert.assertEquals(1, snapshot.getVersion());
+    Assert.assertEquals(Arrays.asList(moved), snapshot.getEvents());
+    Assert.assertEquals(Arrays.asList(moved.getWhen()),
+        snapshot.getIndex().getBusyTimes(PERSON_A));
+  }
+
+  @Test
+  public void oldSnapshotsDontSeeLaterChanges() {
+    // Before  :       |--A--|
+    // After   :       |--A--|--B--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--------2--------|   (before)
+    //           |--1--|           |-----2-----|   (after)
+    EventStore store = new EventStore(Arrays.asList(EVENT_A));
+    EventStore.Snapshot before = store.snapshot();
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    EventStore.Snapshot after = store.add(EVENT_B);
+
+    Assert.assertEquals(Arrays.asList(EVENT_A), before.getEvents());
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true)),
+        before.getBusyBitmaps().query(request));
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM + DURATION_30_MINUTES, TimeRange.END_OF_DAY,
+                true)),
+        after.getBusyBitmaps().query(request));
+  }
+}
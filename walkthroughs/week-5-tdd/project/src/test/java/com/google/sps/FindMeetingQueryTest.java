@@ -19,6 +19,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,6 +35,7 @@ public final class FindMeetingQueryTest {
   // Some people that we can use in our tests.
   private static final String PERSON_A = "Person A";
   private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
 
   // All dates are the first day of the year 2020.
   private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
@@ -42,6 +44,7 @@ public final class FindMeetingQueryTest {
   private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
   private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
   private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 00);
+  private static final int TIME_1200PM = TimeRange.getTimeInMinutes(12, 00);
 
   private static final int DURATION_30_MINUTES = 30;
   private static final int DURATION_60_MINUTES = 60;
@@ -270,4 +273,278 @@ public final class FindMeetingQueryTest {
 
     Assert.assertEquals(expected, actual);
   }
+
+  @Test
+  public void optionalAttendeeIsConsideredWhenFree() {
+    // Events  :       |--A--|     |--B--|
+    //                       |--C--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|                 |--2--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_C)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_C);
+
+    Collection<TimeRange> actual = query.queryWithOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionalAttendeeIgnoredWhenNeverFree() {
+    // C is busy all day, so the options are the same as if C had not been invited.
+    //
+    // Events  :       |--A--|     |--B--|
+    //           |--------------C--------------|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)),
+        new Event("Event 3", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_C)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_C);
+
+    Collection<TimeRange> actual = query.queryWithOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void mostOptionalAttendeesWin() {
+    // Thirty optional attendees are busy in the morning and two in the afternoon, so the
+    // afternoon fits the most of them.
+    //
+    // Events  : |--30 optional--|--2 optional--|
+    // Options :                 |------1-------|
+
+    List<Event> events = new ArrayList<>();
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+    for (int i = 0; i < 32; ++i) {
+      String person = "Optional " + i;
+      TimeRange when = i < 30
+          ? TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_1200PM, false)
+          : TimeRange.fromStartEnd(TIME_1200PM, TimeRange.END_OF_DAY, true);
+      events.add(new Event("Event " + i, when, Arrays.asList(person)));
+      request.addOptionalAttendee(person);
+    }
+
+    Collection<TimeRange> actual = query.queryWithOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_1200PM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionalAttendeesDoNotShrinkJustEnoughRoom() {
+    // There is only one opening for A, and B can't make any of it, so it is still offered.
+    //
+    // Events  : |--A--|     |----A----|
+    //                 |-B-|
+    // Day     : |---------------------|
+    // Options :       |-----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_0830AM, 15),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Collection<TimeRange> actual = query.queryWithOptionalAttendees(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void optionalAttendeesKeepTheEndOfDayRule() {
+    // The gap after A's event is exactly 30 minutes to the end of the day, which the sweep doesn't
+    // count as enough room, so B being free there doesn't make it an option either.
+    //
+    // Events  : |-------------A-------------|
+    // Day     : |-------------------------------|
+    // Options :
+
+    int lateStart = TimeRange.WHOLE_DAY.end() - DURATION_30_MINUTES;
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, lateStart, false),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    Assert.assertEquals(Arrays.asList(), query.query(events, request));
+    Assert.assertEquals(Arrays.asList(), query.queryWithOptionalAttendees(events, request));
+  }
+
+  @Test
+  public void optionalAttendeesWithoutADuration() {
+    // A meeting with no duration, or a negative one, fits in any gap. With B optional, the
+    // windows are the gaps where both are free.
+    //
+    // Events  :       |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--2--|     |--3--|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_1000AM, DURATION_60_MINUTES),
+            Arrays.asList(PERSON_B)));
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true));
+
+    for (int duration : Arrays.asList(0, -1000)) {
+      MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), duration);
+      request.addOptionalAttendee(PERSON_B);
+
+      Assert.assertEquals(expected, query.queryWithOptionalAttendees(events, request));
+    }
+  }
+
+  @Test
+  public void queryAllAnswersEachRequestInOrder() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    List<MeetingRequest> requests = new ArrayList<>();
+    requests.add(new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES));
+    requests.add(new MeetingRequest(Arrays.asList(PERSON_B), DURATION_60_MINUTES));
+    requests.add(new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_2_HOUR));
+    requests.add(new MeetingRequest(NO_ATTENDEES, DURATION_1_HOUR));
+
+    List<Collection<TimeRange>> expected = new ArrayList<>();
+    for (MeetingRequest request : requests) {
+      expected.add(query.query(events, request));
+    }
+
+    Assert.assertEquals(expected, query.queryAll(events, requests));
+    Assert.assertEquals(expected, query.queryAll(events, requests, true));
+  }
+
+  @Test
+  public void parallelAndSequentialQueriesMatchTheReference() {
+    // Lots of attendees with overlapping, nested, touching and zero-length events, so that the
+    // shards have plenty of merging to do.
+    Random random = new Random(7);
+    List<Event> events = new ArrayList<>();
+    List<String> attendees = new ArrayList<>();
+    for (int i = 0; i < 3000; ++i) {
+      attendees.add("Person " + i);
+    }
+    for (int i = 0; i < 600; ++i) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(Math.min(30, TimeRange.WHOLE_DAY.duration() - start) + 1);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(attendees.get(random.nextInt(attendees.size())))));
+    }
+    AttendeeIndex index = AttendeeIndex.of(events);
+
+    FindMeetingQuery sequential = new FindMeetingQuery(Integer.MAX_VALUE);
+    FindMeetingQuery parallel = new FindMeetingQuery(1);
+    for (int duration = 1; duration <= 60; duration += 7) {
+      MeetingRequest request = new MeetingRequest(attendees, duration);
+      Collection<TimeRange> expected = ReferenceMeetingQuery.query(events, request);
+      Assert.assertEquals(expected, sequential.query(index, request));
+      Assert.assertEquals(expected, parallel.query(index, request));
+    }
+  }
+
+  @Test
+  public void everyPathMatchesTheReferenceOnRandomCalendars() {
+    // Each path has its own way of finding openings, so check them all against the original sweep
+    // rather than against each other.
+    Random random = new Random(3);
+    List<String> people = Arrays.asList("A", "B", "C", "D", "E", "F", "G", "H");
+    FindMeetingQuery sequential = new FindMeetingQuery(Integer.MAX_VALUE);
+    FindMeetingQuery parallel = new FindMeetingQuery(1);
+    PackedMeetingQuery packed = new PackedMeetingQuery();
+
+    for (int calendar = 0; calendar < 300; ++calendar) {
+      List<Event> events = randomEvents(random, people, 1 + random.nextInt(60));
+      AttendeeIndex index = AttendeeIndex.of(events);
+      // Build the bitmaps through updates too, so that those keep up with the sweep as well.
+      List<Event> extra = randomEvents(random, people, random.nextInt(5));
+      int half = events.size() / 2;
+      BusyBitmaps bitmaps = BusyBitmaps.of(events.subList(0, half))
+          .plusAll(extra)
+          .plusAll(events.subList(half, events.size()))
+          .minusAll(extra);
+
+      List<String> shuffled = new ArrayList<>(people);
+      Collections.shuffle(shuffled, random);
+      int required = random.nextInt(4);
+      MeetingRequest request = new MeetingRequest(shuffled.subList(0, required),
+          1 + random.nextInt(random.nextBoolean() ? 120 : TimeRange.WHOLE_DAY.duration()));
+      for (String person : shuffled.subList(required, required + random.nextInt(4))) {
+        request.addOptionalAttendee(person);
+      }
+
+      Collection<TimeRange> expected = ReferenceMeetingQuery.query(events, request);
+      String calendarName = "Calendar " + calendar;
+      Assert.assertEquals(calendarName, expected, query.query(events, request));
+      Assert.assertEquals(calendarName, expected, sequential.query(index, request));
+      Assert.assertEquals(calendarName, expected, parallel.query(index, request));
+      Assert.assertEquals(calendarName, expected, packed.query(events, request));
+      Assert.assertEquals(calendarName, expected, bitmaps.query(request));
+
+      Collection<TimeRange> expectedWithOptional =
+          ReferenceMeetingQuery.queryWithOptionalAttendees(events, request);
+      Assert.assertEquals(calendarName, expectedWithOptional,
+          query.queryWithOptionalAttendees(index, request));
+      Assert.assertEquals(calendarName, Arrays.asList(expectedWithOptional),
+          query.queryAll(events, Arrays.asList(request), true));
+    }
+  }
+
+  // Returns count events, each involving some of people.
+  private static List<Event> randomEvents(Random random, List<String> people, int count) {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      int start = random.nextInt(TimeRange.END_OF_DAY);
+      // Some events take no time at all. They still split a gap in the original sweep.
+      int duration = random.nextInt(10) == 0
+          ? 0 : 1 + random.nextInt(Math.min(180, TimeRange.END_OF_DAY - start));
+      List<String> attendees = new ArrayList<>();
+      for (String person : people) {
+        if (random.nextInt(4) == 0) {
+          attendees.add(person);
+        }
+      }
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration), attendees));
+    }
+    return events;
+  }
 }
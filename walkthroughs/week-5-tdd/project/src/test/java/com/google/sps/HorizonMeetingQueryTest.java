@@ -0,0 +1,190 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class HorizonMeetingQueryTest {
+  private static final Collection<HorizonEvent> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  // 2020-01-01, counted in days since the epoch.
+  private static final long DAY_1 = 18262;
+  private static final long DAY_2 = DAY_1 + 1;
+  private static final long DAY_3 = DAY_1 + 2;
+
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0500PM = TimeRange.getTimeInMinutes(17, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_2_DAYS = 2 * HorizonRange.MINUTES_PER_DAY;
+
+  // The working part of a day, 9:00 to 17:00.
+  private static final TimeRange WORK_DAY =
+      TimeRange.fromStartEnd(TIME_0900AM, TIME_0500PM, false);
+
+  private HorizonMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new HorizonMeetingQuery();
+  }
+
+  @Test
+  public void wholeWindowWhenNoEvents() {
+    HorizonRange window = HorizonRange.ofDays(DAY_1, 28);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<HorizonRange> actual = query.query(HorizonIndex.of(NO_EVENTS), request, window);
+
+    Assert.assertEquals(Arrays.asList(window), actual);
+  }
+
+  @Test
+  public void openingsRunOvernight() {
+    // A works 9:00 to 17:00 each day, so the openings run from 17:00 to 9:00 the next morning.
+    List<HorizonEvent> events = new ArrayList<>();
+    for (long day = DAY_1; day <= DAY_3; ++day) {
+      events.add(new HorizonEvent("Work", HorizonRange.onDay(day, WORK_DAY),
+          Arrays.asList(PERSON_A)));
+    }
+
+    HorizonRange window = HorizonRange.ofDays(DAY_1, 3);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<HorizonRange> actual = query.query(HorizonIndex.of(events), request, window);
+    List<HorizonRange> expected = Arrays.asList(
+        HorizonRange.fromStartEnd(window.start(), HorizonRange.onDay(DAY_1, WORK_DAY).start()),
+        HorizonRange.fromStartEnd(HorizonRange.onDay(DAY_1, WORK_DAY).end(),
+            HorizonRange.onDay(DAY_2, WORK_DAY).start()),
+        HorizonRange.fromStartEnd(HorizonRange.onDay(DAY_2, WORK_DAY).end(),
+            HorizonRange.onDay(DAY_3, WORK_DAY).start()),
+        HorizonRange.fromStartEnd(HorizonRange.onDay(DAY_3, WORK_DAY).end(), window.end()));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void eventsOutsideTheWindowAreIgnored() {
+    // B's event on day 1 ends before the window starts and A's event runs into it.
+    //
+    // Events  : |----A----|
+    //           |--B--|
+    // Window  :      |-----------|
+    // Options :           |------|
+    Event longEvent = new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A));
+    Event shortEvent = new Event("Event 2", WORK_DAY, Arrays.asList(PERSON_B));
+    List<HorizonEvent> events = Arrays.asList(
+        HorizonEvent.onDay(DAY_2, longEvent), HorizonEvent.onDay(DAY_1, shortEvent));
+
+    HorizonRange window = HorizonRange.fromStartEnd(
+        HorizonRange.onDay(DAY_1, WORK_DAY).end(), HorizonRange.ofDays(DAY_3, 1).end());
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    List<HorizonRange> actual = query.query(HorizonIndex.of(events), request, window);
+    List<HorizonRange> expected = Arrays.asList(
+        HorizonRange.fromStartEnd(window.start(), HorizonRange.ofDays(DAY_2, 1).start()),
+        HorizonRange.ofDays(DAY_3, 1));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void meetingsCanBeLongerThanADay() {
+    // The free time on either side of A's event is well over a day but under two days.
+    //
+    // Events  :              |-A-|
+    // Window  : |--day 1--|--day 2--|--day 3--|
+    // Options :
+    List<HorizonEvent> events = Arrays.asList(new HorizonEvent("Work",
+        HorizonRange.onDay(DAY_2, WORK_DAY), Arrays.asList(PERSON_A)));
+
+    HorizonRange window = HorizonRange.ofDays(DAY_1, 3);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_2_DAYS);
+
+    List<HorizonRange> actual = query.query(HorizonIndex.of(events), request, window);
+
+    Assert.assertEquals(Arrays.asList(), actual);
+  }
+
+  @Test
+  public void indexSkipsNestedRangesThatEndEarly() {
+    // A short event nested in a long one, both on day 1, and nothing on day 2.
+    Event longEvent = new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A));
+    Event shortEvent = new Event("Event 2", WORK_DAY, Arrays.asList(PERSON_A));
+    HorizonIndex index = HorizonIndex.of(Arrays.asList(
+        HorizonEvent.onDay(DAY_1, longEvent), HorizonEvent.onDay(DAY_1, shortEvent)));
+
+    HorizonRange evening =
+        HorizonRange.fromStartEnd(HorizonRange.onDay(DAY_1, WORK_DAY).end(),
+            HorizonRange.ofDays(DAY_2, 1).start());
+
+    Assert.assertEquals(Arrays.asList(HorizonRange.ofDays(DAY_1, 1)),
+        index.getBusyTimes(PERSON_A, evening));
+    Assert.assertEquals(Arrays.asList(),
+        index.getBusyTimes(PERSON_A, HorizonRange.ofDays(DAY_2, 1)));
+  }
+
+  @Test
+  public void indexFindsTheSameRangesAsAScan() {
+    // A few events that last for weeks overlap most windows along with many short ones, which a
+    // search that only skipped ranges ending early would have to scan past one by one.
+    Random random = new Random(7);
+    List<HorizonEvent> events = new ArrayList<>();
+    List<HorizonRange> ranges = new ArrayList<>();
+    long horizonStart = HorizonRange.ofDays(DAY_1, 1).start();
+    int horizonMinutes = 28 * HorizonRange.MINUTES_PER_DAY;
+    for (int i = 0; i < 500; ++i) {
+      long start = horizonStart + random.nextInt(horizonMinutes);
+      long duration = i % 50 == 0
+          ? random.nextInt(horizonMinutes)
+          : random.nextInt(3 * DURATION_30_MINUTES);
+      HorizonRange when = HorizonRange.fromStartDuration(start, duration);
+      events.add(new HorizonEvent("Event " + i, when, Arrays.asList(PERSON_A)));
+      ranges.add(when);
+    }
+    HorizonIndex index = HorizonIndex.of(events);
+    Collections.sort(ranges, HorizonRange.ORDER_BY_START);
+
+    for (int i = 0; i < 200; ++i) {
+      HorizonRange window = HorizonRange.fromStartDuration(
+          horizonStart + random.nextInt(horizonMinutes), random.nextInt(DURATION_2_DAYS));
+      List<HorizonRange> expected = new ArrayList<>();
+      for (HorizonRange range : ranges) {
+        if (range.end() > window.start() && range.start() < window.end()) {
+          expected.add(range);
+        }
+      }
+
+      Assert.assertEquals(window.toString(), expected, index.getBusyTimes(PERSON_A, window));
+    }
+  }
+}
@@ -44,4 +44,21 @@ public final class MeetingRequestTest {
     int expected = 0;
     Assert.assertEquals(expected, actual);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void requestsDontAddNamesToTheDictionary() {
+    // Requests come straight from clients, so made-up names must not grow the global dictionary.
+    String stranger = "Stranger " + System.nanoTime();
+    int before = AttendeeDictionary.global().size();
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A, stranger), DURATION_1_HOUR);
+    request.addOptionalAttendee(stranger + " too");
+    request.getAttendeeIds();
+    request.getOptionalAttendeeIds();
+
+    Assert.assertEquals(before, AttendeeDictionary.global().size());
+    Assert.assertEquals(-1, AttendeeDictionary.global().find(stranger));
+    Assert.assertTrue(request.getAttendees().contains(stranger));
+    Assert.assertEquals(0, request.getOptionalAttendeeIds().length);
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class PackedMeetingQueryTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+  private static final int DURATION_90_MINUTES = 90;
+
+  private final FindMeetingQuery query = new FindMeetingQuery();
+  private final PackedMeetingQuery packedQuery = new PackedMeetingQuery();
+
+  @Test
+  public void wholeDayWhenNoEvents() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = packedQuery.query(NO_EVENTS, request);
+    Collection<TimeRange> expected = Arrays.asList(TimeRange.WHOLE_DAY);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void nestedEvents() {
+    // Events  :       |----A----|
+    //                   |--B--|
+    // Day     : |---------------------|
+    // Options : |--1--|         |--2--|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0830AM, DURATION_90_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = packedQuery.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void sameStartKeepsLongest() {
+    // Events  :       |--A--|
+    //                 |----A----|
+    // Options : |--1--|         |--2--|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0830AM, DURATION_90_MINUTES),
+            Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+
+    Assert.assertEquals(query.query(events, request), packedQuery.query(events, request));
+  }
+
+  @Test
+  public void matchesTheReferenceOnRandomCalendars() {
+    Random random = new Random(42);
+    List<String> people = Arrays.asList("A", "B", "C", "D", "E", "F", "G", "H");
+
+    for (int calendar = 0; calendar < 200; ++calendar) {
+      List<Event> events = new ArrayList<>();
+      int numEvents = random.nextInt(30);
+      for (int i = 0; i < numEvents; ++i) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+        int duration = random.nextInt(Math.min(180, TimeRange.WHOLE_DAY.duration() - start) + 1);
+        List<String> attendees = new ArrayList<>();
+        for (String person : people) {
+          if (random.nextInt(4) == 0) {
+            attendees.add(person);
+          }
+        }
+        events.add(
+            new Event("Event " + i, TimeRange.fromStartDuration(start, duration), attendees));
+      }
+
+      List<String> attendees = people.subList(0, 1 + random.nextInt(people.size()));
+      MeetingRequest request = new MeetingRequest(attendees, 1 + random.nextInt(120));
+
+      Collection<TimeRange> expected = ReferenceMeetingQuery.query(events, request);
+      Assert.assertEquals(expected, query.query(events, request));
+      Assert.assertEquals(expected, packedQuery.query(events, request));
+    }
+  }
+}
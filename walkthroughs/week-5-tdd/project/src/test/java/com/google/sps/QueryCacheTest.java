@@ -0,0 +1,147 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryCacheTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  private static final Event EVENT_A = new Event("Event 1",
+      TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), Arrays.asList(PERSON_A));
+  private static final Event EVENT_B = new Event("Event 2",
+      TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_B));
+
+  private static final Collection<TimeRange> ANSWER = Arrays.asList(TimeRange.WHOLE_DAY);
+
+  private EventStore store;
+  private QueryCache cache;
+
+  @Before
+  public void setUp() {
+    store = new EventStore(Arrays.asList(EVENT_A));
+    cache = new QueryCache(2);
+    store.addListener(cache);
+  }
+
+  @Test
+  public void sameAttendeesInAnyOrderHit() {
+    cache.put(store.snapshot(), new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B),
+        DURATION_30_MINUTES), ANSWER);
+
+    Collection<TimeRange> answer = cache.get(store.snapshot(),
+        new MeetingRequest(Arrays.asList(PERSON_B, PERSON_A), DURATION_30_MINUTES));
+
+    Assert.assertEquals(ANSWER, answer);
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(0, cache.getMisses());
+  }
+
+  @Test
+  public void differentDurationOrOptionalAttendeesMiss() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    cache.put(store.snapshot(), request, ANSWER);
+
+    MeetingRequest longer = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+    MeetingRequest withOptional =
+        new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    withOptional.addOptionalAttendee(PERSON_B);
+
+    Assert.assertNull(cache.get(store.snapshot(), longer));
+    Assert.assertNull(cache.get(store.snapshot(), withOptional));
+    Assert.assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void changesToOtherAttendeesKeepTheAnswer() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    cache.put(store.snapshot(), request, ANSWER);
+
+    store.add(EVENT_B);
+
+    Assert.assertEquals(ANSWER, cache.get(store.snapshot(), request));
+  }
+
+  @Test
+  public void changesToAnAttendeeDropTheAnswer() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_C), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+    cache.put(store.snapshot(), request, ANSWER);
+
+    // Person B is only optional, but their events still change the answer.
+    store.add(EVENT_B);
+
+    Assert.assertNull(cache.get(store.snapshot(), request));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void attendeesWithoutEventsGainingOneDropTheAnswer() {
+    // Nobody has ever had an event with this name, so the request doesn't know an ID for it.
+    String newcomer = "Newcomer " + System.nanoTime();
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, newcomer), DURATION_30_MINUTES);
+    cache.put(store.snapshot(), request, ANSWER);
+
+    store.add(new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+        Arrays.asList(newcomer)));
+
+    Assert.assertNull(cache.get(store.snapshot(), request));
+  }
+
+  @Test
+  public void olderSnapshotsDontSeeNewerAnswers() {
+    EventStore.Snapshot before = store.snapshot();
+    store.add(EVENT_B);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    cache.put(store.snapshot(), request, ANSWER);
+
+    Assert.assertNull(cache.get(before, request));
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedAnswer() {
+    MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+    MeetingRequest requestC = new MeetingRequest(Arrays.asList(PERSON_C), DURATION_30_MINUTES);
+    cache.put(store.snapshot(), requestA, ANSWER);
+    cache.put(store.snapshot(), requestB, ANSWER);
+
+    // Using A makes B the least recently used.
+    cache.get(store.snapshot(), requestA);
+    cache.put(store.snapshot(), requestC, ANSWER);
+
+    Assert.assertNotNull(cache.get(store.snapshot(), requestA));
+    Assert.assertNull(cache.get(store.snapshot(), requestB));
+    Assert.assertNotNull(cache.get(store.snapshot(), requestC));
+  }
+}
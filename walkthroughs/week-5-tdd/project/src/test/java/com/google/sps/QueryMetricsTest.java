@@ -0,0 +1,102 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryMetricsTest {
+  private static final String PERSON_A = "Person A";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Test
+  public void histogramBucketsAreCumulative() throws IOException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(5));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+    histogram.record(TimeUnit.SECONDS.toNanos(20));
+
+    StringWriter out = new StringWriter();
+    histogram.writeSamples(out, "latency_seconds", "");
+    String text = out.toString();
+
+    Assert.assertTrue(text.contains("latency_seconds_bucket{le=\"0.00001\"} 1\n"));
+    Assert.assertTrue(text.contains("latency_seconds_bucket{le=\"0.0025\"} 2\n"));
+    Assert.assertTrue(text.contains("latency_seconds_bucket{le=\"10\"} 2\n"));
+    Assert.assertTrue(text.contains("latency_seconds_bucket{le=\"+Inf\"} 3\n"));
+    Assert.assertTrue(text.contains("latency_seconds_count 3\n"));
+    Assert.assertEquals(3, histogram.count());
+  }
+
+  @Test
+  public void writesCountersPerPath() throws IOException {
+    QueryMetrics metrics = new QueryMetrics();
+    metrics.recordQuery(QueryMetrics.Path.EVENTS, 1000, 10, 4, 2);
+    metrics.recordQuery(QueryMetrics.Path.EVENTS, 1000, 5, 1, 1);
+    metrics.recordQuery(QueryMetrics.Path.INDEX, 1000, 3);
+    metrics.recordRequest(5000, 2048);
+
+    StringWriter out = new StringWriter();
+    metrics.writePrometheus(out);
+    String text = out.toString();
+
+    Assert.assertTrue(text.contains("# TYPE scheduler_query_duration_seconds histogram\n"));
+    Assert.assertTrue(
+        text.contains("scheduler_query_duration_seconds_count{path=\"events\"} 2\n"));
+    Assert.assertTrue(text.contains("scheduler_query_events_scanned_total{path=\"events\"} 15\n"));
+    Assert.assertTrue(text.contains("scheduler_query_events_matched_total{path=\"events\"} 5\n"));
+    Assert.assertTrue(text.contains("scheduler_query_openings_total{path=\"index\"} 3\n"));
+    Assert.assertTrue(text.contains("scheduler_query_openings_total{path=\"bitmaps\"} 0\n"));
+    // Only the events path scans anything, so the other paths have no scan counters.
+    Assert.assertFalse(text.contains("scheduler_query_events_scanned_total{path=\"index\"}"));
+    Assert.assertTrue(text.contains("scheduler_request_allocated_bytes_total 2048\n"));
+  }
+
+  @Test
+  public void queriesRecordIntoTheGlobalMetrics() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    StringWriter before = new StringWriter();
+    StringWriter after = new StringWriter();
+    try {
+      QueryMetrics.global().writePrometheus(before);
+      new FindMeetingQuery().query(Arrays.asList(event), request);
+      QueryMetrics.global().writePrometheus(after);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+
+    Assert.assertEquals(matched(before.toString()) + 1, matched(after.toString()));
+  }
+
+  private static long matched(String text) {
+    String prefix = "scheduler_query_events_matched_total{path=\"events\"} ";
+    int start = text.indexOf(prefix) + prefix.length();
+    return Long.parseLong(text.substring(start, text.indexOf('\n', start)));
+  }
+}
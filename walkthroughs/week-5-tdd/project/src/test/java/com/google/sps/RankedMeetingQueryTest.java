@@ -0,0 +1,163 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.sps.RankedMeetingQuery.RankedSlot;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class RankedMeetingQueryTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0000AM = TimeRange.getTimeInMinutes(0, 0);
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0500PM = TimeRange.getTimeInMinutes(17, 0);
+
+  private static final int DURATION_60_MINUTES = 60;
+
+  // Scores slots by start time only, latest first, and never stops early.
+  private static final SlotScorer LATEST_FIRST = new SlotScorer() {
+    @Override
+    public double score(TimeRange when, int optionalAttendees, int totalOptionalAttendees) {
+      return when.start();
+    }
+  };
+
+  private RankedMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new RankedMeetingQuery(60);
+  }
+
+  private static List<TimeRange> slots(List<RankedSlot> ranked) {
+    List<TimeRange> slots = new ArrayList<>();
+    for (RankedSlot slot : ranked) {
+      slots.add(slot.getWhen());
+    }
+    return slots;
+  }
+
+  @Test
+  public void earliestSlotsWinWithoutOtherPreferences() {
+    // Only earliness matters, and A is busy until 8:00.
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TIME_0000AM, TIME_0800AM, false), Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+
+    List<RankedSlot> actual =
+        query.query(AttendeeIndex.of(events), request, 3, new DefaultSlotScorer(1, 0, 0));
+    List<TimeRange> expected = Arrays.asList(
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES),
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+        TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(10, 0), DURATION_60_MINUTES));
+
+    Assert.assertEquals(expected, slots(actual));
+  }
+
+  @Test
+  public void optionalAttendeesRaiseTheScore() {
+    // B is optional and only free from 17:00, which outweighs starting early.
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TIME_0000AM, TIME_0500PM, false), Arrays.asList(PERSON_B)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    List<RankedSlot> actual = query.query(AttendeeIndex.of(events), request, 1);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartDuration(TIME_0500PM,
+        DURATION_60_MINUTES)), slots(actual));
+    Assert.assertEquals(1, actual.get(0).getOptionalAttendees());
+  }
+
+  @Test
+  public void stoppingEarlyGivesTheSameSlotsAsAFullScan() {
+    List<Event> events = new ArrayList<>();
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+    for (int i = 0; i < 10; ++i) {
+      String person = "Optional " + i;
+      events.add(new Event("Event " + i,
+          TimeRange.fromStartDuration(i * 2 * DURATION_60_MINUTES, DURATION_60_MINUTES),
+          Arrays.asList(person)));
+      request.addOptionalAttendee(person);
+    }
+    AttendeeIndex index = AttendeeIndex.of(events);
+
+    final DefaultSlotScorer scorer = new DefaultSlotScorer();
+    SlotScorer fullScan = new SlotScorer() {
+      @Override
+      public double score(TimeRange when, int optionalAttendees, int totalOptionalAttendees) {
+        return scorer.score(when, optionalAttendees, totalOptionalAttendees);
+      }
+    };
+
+    RankedMeetingQuery everyMinute = new RankedMeetingQuery(1);
+    Assert.assertEquals(slots(everyMinute.query(index, request, 5, fullScan)),
+        slots(everyMinute.query(index, request, 5, scorer)));
+  }
+
+  @Test
+  public void negativeWeightsDontStopTheScanEarly() {
+    // A negative lunch weight prefers slots near lunch, so the best slot comes long after the
+    // first few have been scored.
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+
+    List<RankedSlot> actual = query.query(
+        AttendeeIndex.of(Arrays.asList()), request, 1, new DefaultSlotScorer(1, 0, -1));
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartDuration(
+        TimeRange.getTimeInMinutes(11, 0), DURATION_60_MINUTES)), slots(actual));
+  }
+
+  @Test
+  public void slotsWithoutADurationTakeAMinute() {
+    // Only earliness matters, and A is busy until 8:00.
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TIME_0000AM, TIME_0800AM, false), Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 0);
+
+    List<RankedSlot> actual =
+        query.query(AttendeeIndex.of(events), request, 1, new DefaultSlotScorer(1, 0, 0));
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, 1)), slots(actual));
+  }
+
+  @Test
+  public void returnsFewerSlotsWhenThereAreNotEnough() {
+    // A is only free from 22:30, so there is a single slot on the hour. (From 23:00 there would be
+    // none: like every other path, the last gap has to end a minute before the day does.)
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TIME_0000AM, TimeRange.getTimeInMinutes(22, 30), false),
+        Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+
+    List<RankedSlot> actual = query.query(AttendeeIndex.of(events), request, 5, LATEST_FIRST);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartDuration(
+        TimeRange.getTimeInMinutes(23, 0), DURATION_60_MINUTES)), slots(actual));
+  }
+}
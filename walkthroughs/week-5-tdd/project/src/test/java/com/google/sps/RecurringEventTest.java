@@ -0,0 +1,167 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class RecurringEventTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  // 2020-01-01, a Wednesday, counted in days since the epoch.
+  private static final long WEDNESDAY = 18262;
+  private static final long THURSDAY = WEDNESDAY + 1;
+  private static final long MONDAY = WEDNESDAY + 5;
+
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+  private static final int TIME_1100PM = TimeRange.getTimeInMinutes(23, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_2_HOURS = 120;
+
+  private static final HorizonRange STAND_UP = HorizonRange.onDay(
+      WEDNESDAY, TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES));
+
+  @Test
+  public void dailySeriesOnlyExpandsTheWindow() {
+    RecurringEvent standUp = new RecurringEvent(
+        "Stand-up", STAND_UP, Arrays.asList(PERSON_A), RecurrenceRule.daily(1));
+
+    List<HorizonRange> occurrences = standUp.occurrences(HorizonRange.ofDays(THURSDAY, 2));
+
+    Assert.assertEquals(
+        Arrays.asList(
+            HorizonRange.onDay(THURSDAY, TimeRange.fromStartDuration(TIME_0900AM, 30)),
+            HorizonRange.onDay(THURSDAY + 1, TimeRange.fromStartDuration(TIME_0900AM, 30))),
+        occurrences);
+  }
+
+  @Test
+  public void farFutureWindowsJumpStraightToTheirOccurrences() {
+    RecurringEvent standUp = new RecurringEvent(
+        "Stand-up", STAND_UP, Arrays.asList(PERSON_A), RecurrenceRule.daily(1));
+    long inTenYears = WEDNESDAY + 3653;
+
+    List<HorizonRange> occurrences = standUp.occurrences(HorizonRange.ofDays(inTenYears, 1));
+
+    Assert.assertEquals(
+        Arrays.asList(HorizonRange.onDay(inTenYears, TimeRange.fromStartDuration(TIME_0900AM, 30))),
+        occurrences);
+  }
+
+  @Test
+  public void weeklySeriesRepeatOnTheirDays() {
+    // Starts on a Wednesday and also repeats on Mondays, every other week counted from the first
+    // Wednesday.
+    RecurringEvent oneOnOne = new RecurringEvent("1:1", STAND_UP, Arrays.asList(PERSON_A),
+        RecurrenceRule.weekly(2, EnumSet.of(DayOfWeek.MONDAY)));
+
+    List<HorizonRange> occurrences = oneOnOne.occurrences(HorizonRange.ofDays(WEDNESDAY, 21));
+
+    Assert.assertEquals(
+        Arrays.asList(STAND_UP,
+            HorizonRange.onDay(MONDAY, TimeRange.fromStartDuration(TIME_0900AM, 30)),
+            HorizonRange.onDay(WEDNESDAY + 14, TimeRange.fromStartDuration(TIME_0900AM, 30)),
+            HorizonRange.onDay(MONDAY + 14, TimeRange.fromStartDuration(TIME_0900AM, 30))),
+        occurrences);
+  }
+
+  @Test
+  public void seriesStopAfterTheirCountOrEnd() {
+    RecurringEvent counted = new RecurringEvent(
+        "Stand-up", STAND_UP, Arrays.asList(PERSON_A), RecurrenceRule.daily(1).times(3));
+    RecurringEvent ended = new RecurringEvent("Stand-up", STAND_UP, Arrays.asList(PERSON_A),
+        RecurrenceRule.daily(1).until(HorizonRange.ofDays(WEDNESDAY + 2, 1).start()));
+
+    Assert.assertEquals(3, counted.occurrences(HorizonRange.ofDays(WEDNESDAY, 10)).size());
+    Assert.assertEquals(2, ended.occurrences(HorizonRange.ofDays(WEDNESDAY, 10)).size());
+  }
+
+  @Test
+  public void repeatedWindowsAreCached() {
+    RecurringEvent standUp = new RecurringEvent(
+        "Stand-up", STAND_UP, Arrays.asList(PERSON_A), RecurrenceRule.daily(1));
+    HorizonRange window = HorizonRange.ofDays(THURSDAY, 7);
+
+    Assert.assertSame(standUp.occurrences(window), standUp.occurrences(window));
+  }
+
+  @Test
+  public void occurrencesAcrossMidnightAreClippedToTheDay() {
+    // A late shift from 23:00 to 01:00 every night.
+    RecurringEvent lateShift = new RecurringEvent("Late shift",
+        HorizonRange.onDay(WEDNESDAY, TimeRange.fromStartDuration(TIME_1100PM, DURATION_2_HOURS)),
+        Arrays.asList(PERSON_A), RecurrenceRule.daily(1));
+
+    List<Event> events = lateShift.eventsOn(THURSDAY);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, 60, false),
+            TimeRange.fromStartEnd(TIME_1100PM, TimeRange.END_OF_DAY, true)),
+        Arrays.asList(events.get(0).getWhen(), events.get(1).getWhen()));
+  }
+
+  @Test
+  public void findMeetingQuerySeesTheDaysOccurrences() {
+    // Events  :       |A|
+    // Day     : |---------------------|
+    // Options : |--1--|  |-----2------|
+    RecurringEvent standUp = new RecurringEvent(
+        "Stand-up", STAND_UP, Arrays.asList(PERSON_A), RecurrenceRule.daily(1));
+    RecurringEvent otherTeam = new RecurringEvent(
+        "Other stand-up", STAND_UP, Arrays.asList(PERSON_B), RecurrenceRule.daily(1));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = new FindMeetingQuery().query(
+        NO_EVENTS, Arrays.asList(standUp, otherTeam), THURSDAY, request);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true)),
+        actual);
+  }
+
+  @Test
+  public void horizonQueriesSeeEveryOccurrenceInTheWindow() {
+    RecurringEvent standUp = new RecurringEvent(
+        "Stand-up", STAND_UP, Arrays.asList(PERSON_A), RecurrenceRule.daily(1));
+    HorizonIndex index =
+        HorizonIndex.of(Collections.<HorizonEvent>emptyList(), Arrays.asList(standUp));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    List<HorizonRange> openings =
+        new HorizonMeetingQuery().query(index, request, HorizonRange.ofDays(THURSDAY, 2));
+
+    // Free around the stand-up on both days, and across the night in between.
+    Assert.assertEquals(3, openings.size());
+    Assert.assertEquals(HorizonRange.onDay(THURSDAY, TimeRange.fromStartDuration(TIME_0930AM, 0))
+        .start(), openings.get(1).start());
+  }
+}
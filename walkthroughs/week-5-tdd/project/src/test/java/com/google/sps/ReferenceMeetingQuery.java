@@ -0,0 +1,155 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The original sweep that {@link FindMeetingQuery} started from, kept as plain as possible so that
+ * the randomized tests can check every faster path against it. It compares names rather than IDs
+ * and walks sorted lists rather than packed blocks, so it shares no code with the paths it checks.
+ */
+final class ReferenceMeetingQuery {
+  private ReferenceMeetingQuery() {}
+
+  /**
+   * Returns every opening in the day where all of the request's required attendees are free.
+   */
+  static Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    return query(events, request.getAttendees(), (int) request.getDuration());
+  }
+
+  /**
+   * Returns the openings that fit the most optional attendees along with every required one, or
+   * the required attendees' openings if no optional attendee can make it.
+   */
+  static Collection<TimeRange> queryWithOptionalAttendees(
+      Collection<Event> events, MeetingRequest request) {
+    int duration = (int) request.getDuration();
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return Arrays.asList();
+    }
+
+    // Check every start minute against each attendee's own openings.
+    int lastStart = TimeRange.WHOLE_DAY.duration() - duration;
+    boolean[] requiredFree = freeStarts(query(events, request.getAttendees(), duration), duration);
+    int[] optionalFree = new int[lastStart + 1];
+    for (String attendee : request.getOptionalAttendees()) {
+      boolean[] free = freeStarts(
+          query(events, Collections.singletonList(attendee), duration), duration);
+      for (int start = 0; start <= lastStart; ++start) {
+        if (free[start]) {
+          ++optionalFree[start];
+        }
+      }
+    }
+
+    int mostOptional = -1;
+    for (int start = 0; start <= lastStart; ++start) {
+      if (requiredFree[start]) {
+        mostOptional = Math.max(mostOptional, optionalFree[start]);
+      }
+    }
+    if (mostOptional <= 0) {
+      return query(events, request);
+    }
+
+    List<TimeRange> openings = new ArrayList<>();
+    int start = 0;
+    while (start <= lastStart) {
+      if (!requiredFree[start] || optionalFree[start] != mostOptional) {
+        ++start;
+        continue;
+      }
+      int runEnd = start;
+      while (runEnd < lastStart && requiredFree[runEnd + 1]
+          && optionalFree[runEnd + 1] == mostOptional) {
+        ++runEnd;
+      }
+      openings.add(TimeRange.fromStartEnd(start, runEnd + duration, false));
+      start = runEnd + 1;
+    }
+    return openings;
+  }
+
+  private static Collection<TimeRange> query(
+      Collection<Event> events, Collection<String> requested, int duration) {
+    // If request is longer than length of day, then there would never be any options
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return Arrays.asList();
+    }
+
+    // Keep the meetings that involve someone from the request, sorted by start time
+    List<TimeRange> attendedMeetings = new ArrayList<>();
+    for (Event event : events) {
+      Set<String> attendees = new HashSet<>(requested);
+      attendees.retainAll(event.getAttendees());
+      if (!attendees.isEmpty()) {
+        attendedMeetings.add(event.getWhen());
+      }
+    }
+    Collections.sort(attendedMeetings, TimeRange.ORDER_BY_START);
+
+    // Skip meetings that end before the latest end so far, since they are nested in another one
+    List<TimeRange> validMeetings = new ArrayList<>();
+    for (TimeRange meeting : attendedMeetings) {
+      int numMeetings = validMeetings.size();
+      if (numMeetings == 0 || meeting.end() > validMeetings.get(numMeetings - 1).end()) {
+        validMeetings.add(meeting);
+      }
+    }
+
+    // If there are no remaining meetings, entire day is free
+    if (validMeetings.isEmpty()) {
+      return Arrays.asList(TimeRange.WHOLE_DAY);
+    }
+
+    List<TimeRange> openings = new ArrayList<>();
+    if (validMeetings.get(0).start() - TimeRange.START_OF_DAY >= duration) {
+      openings.add(
+          TimeRange.fromStartEnd(TimeRange.START_OF_DAY, validMeetings.get(0).start(), false));
+    }
+    for (int i = 0; i < validMeetings.size(); ++i) {
+      int startTime = validMeetings.get(i).end();
+      if (i == validMeetings.size() - 1) {
+        // The last gap runs to the end of the day, but is measured to END_OF_DAY.
+        if (startTime + duration <= TimeRange.END_OF_DAY) {
+          openings.add(TimeRange.fromStartEnd(startTime, TimeRange.END_OF_DAY, true));
+        }
+      } else if (validMeetings.get(i + 1).start() - startTime >= duration) {
+        openings.add(TimeRange.fromStartEnd(startTime, validMeetings.get(i + 1).start(), false));
+      }
+    }
+    return openings;
+  }
+
+  // Marks every start minute whose meeting fits inside one of the openings.
+  private static boolean[] freeStarts(Collection<TimeRange> openings, int duration) {
+    boolean[] free = new boolean[TimeRange.WHOLE_DAY.duration() - duration + 1];
+    for (TimeRange opening : openings) {
+      for (int start = opening.start(); start + duration <= opening.end(); ++start) {
+        free[start] = true;
+      }
+    }
+    return free;
+  }
+}
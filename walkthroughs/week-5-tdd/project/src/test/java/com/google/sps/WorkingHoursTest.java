@@ -0,0 +1,175 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class WorkingHoursTest {
+  private static final Collection<Event> NO_EVENTS = Collections.emptySet();
+
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+  private static final int TIME_0500PM = TimeRange.getTimeInMinutes(17, 0);
+  private static final int TIME_1000PM = TimeRange.getTimeInMinutes(22, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_60_MINUTES = 60;
+
+  private static final ZoneId UTC = ZoneOffset.UTC;
+  private static final ZoneId UTC_PLUS_2 = ZoneOffset.ofHours(2);
+  private static final ZoneId UTC_MINUS_5 = ZoneOffset.ofHours(-5);
+
+  // A Wednesday and a Saturday.
+  private static final LocalDate WEDNESDAY = LocalDate.of(2020, 6, 17);
+  private static final LocalDate SATURDAY = LocalDate.of(2020, 6, 20);
+
+  private static final LocalTime NINE = LocalTime.of(9, 0);
+  private static final LocalTime FIVE = LocalTime.of(17, 0);
+
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    query = new FindMeetingQuery();
+  }
+
+  @Test
+  public void onlyWithinWorkingHours() {
+    Map<String, WorkingHours> profiles = new HashMap<>();
+    profiles.put(PERSON_A, WorkingHours.weekdays(UTC, NINE, FIVE));
+    WorkingHoursMasks masks = WorkingHoursMasks.compile(profiles, WEDNESDAY, UTC);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(AttendeeIndex.of(NO_EVENTS), masks, request);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM, TIME_0500PM, false)),
+        actual);
+  }
+
+  @Test
+  public void workingHoursAreShiftedIntoTheCalendarsZone() {
+    // Person A works 9-5 two hours ahead of the calendar, Person B 9-5 five hours behind it.
+    //
+    // Person A : |-----A-----|           07:00 to 15:00
+    // Person B :          |-----B-----|  14:00 to 22:00
+    Map<String, WorkingHours> profiles = new HashMap<>();
+    profiles.put(PERSON_A, WorkingHours.weekdays(UTC_PLUS_2, NINE, FIVE));
+    profiles.put(PERSON_B, WorkingHours.weekdays(UTC_MINUS_5, NINE, FIVE));
+    WorkingHoursMasks masks = WorkingHoursMasks.compile(profiles, WEDNESDAY, UTC);
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(AttendeeIndex.of(NO_EVENTS), masks, request);
+
+    // Only 14:00 to 15:00 works for both of them.
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(14, 0),
+            TimeRange.getTimeInMinutes(15, 0), false)),
+        actual);
+  }
+
+  @Test
+  public void masksAreIntersectedWithBusyTimes() {
+    // Events  :            |--A--|
+    // Hours   :       |-----------------|
+    // Options :       |-1-|      |--2---|
+    Map<String, WorkingHours> profiles = new HashMap<>();
+    profiles.put(PERSON_A, WorkingHours.weekdays(UTC, NINE, FIVE));
+    WorkingHoursMasks masks = WorkingHoursMasks.compile(profiles, WEDNESDAY, UTC);
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_1000AM, TIME_1100AM, false),
+            Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES);
+
+    Collection<TimeRange> actual = query.query(AttendeeIndex.of(events), masks, request);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+            TimeRange.fromStartEnd(TIME_1100AM, TIME_0500PM, false)),
+        actual);
+  }
+
+  @Test
+  public void nobodyWorksOnTheWeekend() {
+    Map<String, WorkingHours> profiles = new HashMap<>();
+    profiles.put(PERSON_A, WorkingHours.weekdays(UTC, NINE, FIVE));
+    WorkingHoursMasks masks = WorkingHoursMasks.compile(profiles, SATURDAY, UTC);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(AttendeeIndex.of(NO_EVENTS), masks, request);
+
+    Assert.assertEquals(Arrays.asList(), actual);
+  }
+
+  @Test
+  public void overnightShiftsSpanTwoDays() {
+    // Person C works 22:00 to 06:00 every weekday night.
+    Map<String, WorkingHours> profiles = new HashMap<>();
+    profiles.put(PERSON_C, WorkingHours.weekdays(UTC, LocalTime.of(22, 0), LocalTime.of(6, 0)));
+    WorkingHoursMasks masks = WorkingHoursMasks.compile(profiles, WEDNESDAY, UTC);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_C), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(AttendeeIndex.of(NO_EVENTS), masks, request);
+
+    // Tuesday night's shift runs into the morning and Wednesday night's starts at 22:00.
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY,
+            TimeRange.getTimeInMinutes(6, 0), false),
+            TimeRange.fromStartEnd(TIME_1000PM, TimeRange.END_OF_DAY, true)),
+        actual);
+  }
+
+  @Test
+  public void attendeesWithoutAProfileAreAlwaysAvailable() {
+    WorkingHoursMasks masks =
+        WorkingHoursMasks.compile(new HashMap<String, WorkingHours>(), WEDNESDAY, UTC);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(AttendeeIndex.of(NO_EVENTS), masks, request);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), actual);
+  }
+
+  @Test
+  public void sharedProfilesShareOneMask() {
+    Map<String, WorkingHours> profiles = new HashMap<>();
+    profiles.put(PERSON_A, WorkingHours.weekdays(UTC_PLUS_2, NINE, FIVE));
+    profiles.put(PERSON_B, WorkingHours.weekdays(UTC_PLUS_2, NINE, FIVE));
+    WorkingHoursMasks masks = WorkingHoursMasks.compile(profiles, WEDNESDAY, UTC);
+
+    Assert.assertSame(masks.getOffHours(PERSON_A), masks.getOffHours(PERSON_B));
+  }
+}
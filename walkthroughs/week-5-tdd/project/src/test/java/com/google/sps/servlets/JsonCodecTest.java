@@ -0,0 +1,179 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class JsonCodecTest {
+  @Test
+  public void readsRequestFromTheWebPage() throws IOException {
+    // The page sends the duration as a string and has no optional attendees.
+    String json = "{\"duration\":\"30\",\"attendees\":[\"Ava\",\"Emma\"]}";
+
+    MeetingRequest request = JsonCodec.readMeetingRequest(new JsonReader(new StringReader(json)));
+
+    Assert.assertEquals(30, request.getDuration());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("Ava", "Emma")),
+        new HashSet<>(request.getAttendees()));
+    Assert.assertTrue(request.getOptionalAttendees().isEmpty());
+  }
+
+  @Test
+  public void readsOptionalAttendeesAndSkipsUnknownFields() throws IOException {
+    String json = "[{\"duration\":60,\"attendees\":[\"Ava\"],\"optional_attendees\":[\"Liam\"],"
+        + "\"room\":{\"name\":\"Lobby\"}},{\"duration\":15,\"attendees\":null}]";
+
+    List<MeetingRequest> requests =
+        JsonCodec.readMeetingRequests(new JsonReader(new StringReader(json)));
+
+    Assert.assertEquals(2, requests.size());
+    Assert.assertEquals(Arrays.asList("Liam"),
+        Arrays.asList(requests.get(0).getOptionalAttendees().toArray()));
+    Assert.assertTrue(requests.get(1).getAttendees().isEmpty());
+  }
+
+  @Test
+  public void readsDurationsOutsideOfADayAsSent() throws IOException {
+    // The queries decide what these mean; a request longer than the day just has no options.
+    for (long duration : Arrays.asList(0L, -1000L, 1441L)) {
+      String json = "{\"duration\":" + duration + ",\"attendees\":[\"Ava\"]}";
+
+      MeetingRequest request =
+          JsonCodec.readMeetingRequest(new JsonReader(new StringReader(json)));
+
+      Assert.assertEquals(duration, request.getDuration());
+    }
+  }
+
+  @Test
+  public void emptyAndTruncatedBodiesEndWithEOFException() throws IOException {
+    // The servlets answer these with a 400, so they must not surface as any other IOException.
+    for (String json : Arrays.asList("", "{\"duration\":30,\"attendees\":[\"Ava\"")) {
+      try {
+        JsonCodec.readMeetingRequest(new JsonReader(new StringReader(json)));
+        Assert.fail("Accepted " + json);
+      } catch (EOFException e) {
+        // Expected.
+      }
+    }
+  }
+
+  @Test
+  public void readsAttendeesWithoutADuration() throws IOException {
+    String json = "{\"attendees\":[\"Ava\"],\"optional_attendees\":[\"Liam\"]}";
+
+    List<String> attendees = JsonCodec.readAttendees(new JsonReader(new StringReader(json)));
+
+    Assert.assertEquals(Arrays.asList("Ava", "Liam"), attendees);
+  }
+
+  @Test
+  public void readsEventsInTheShapeTheyAreWritten() throws IOException {
+    String json = "[{\"title\":\"Lunch\",\"when\":{\"start\":720,\"duration\":60},"
+        + "\"attendees\":[\"Ava\"],\"room\":\"Lobby\"}]";
+
+    List<Event> events = JsonCodec.readEvents(new JsonReader(new StringReader(json)));
+
+    Assert.assertEquals(Arrays.asList(new Event("Lunch", TimeRange.fromStartDuration(720, 60),
+        Arrays.asList("Ava"))), events);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsEventsWithoutATime() throws IOException {
+    String json = "{\"title\":\"Lunch\",\"attendees\":[]}";
+
+    JsonCodec.readEvent(new JsonReader(new StringReader(json)));
+  }
+
+  @Test
+  public void rejectsEventsOutsideOfTheDay() throws IOException {
+    for (String when : Arrays.asList("{\"start\":-1,\"duration\":60}",
+        "{\"start\":720,\"duration\":-60}", "{\"start\":1400,\"duration\":41}",
+        "{\"start\":2147483647,\"duration\":2147483647}")) {
+      String json = "{\"title\":\"Lunch\",\"when\":" + when + ",\"attendees\":[\"Ava\"]}";
+      try {
+        JsonCodec.readEvent(new JsonReader(new StringReader(json)));
+        Assert.fail("Accepted " + when);
+      } catch (IllegalArgumentException e) {
+        // Expected, and answered with a 400 by the servlets.
+      }
+    }
+  }
+
+  @Test
+  public void readsEventsThatEndTheDay() throws IOException {
+    String json = "{\"title\":\"Late\",\"when\":{\"start\":1380,\"duration\":60},"
+        + "\"attendees\":[\"Ava\"]}";
+
+    Event event = JsonCodec.readEvent(new JsonReader(new StringReader(json)));
+
+    Assert.assertEquals(TimeRange.fromStartDuration(1380, 60), event.getWhen());
+  }
+
+  @Test
+  public void writesTheSameJsonAsGson() throws IOException {
+    Collection<TimeRange> ranges = Arrays.asList(TimeRange.WHOLE_DAY,
+        TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(8, 30), 45));
+
+    StringWriter rangesJson = new StringWriter();
+    JsonCodec.writeTimeRanges(new JsonWriter(rangesJson), ranges);
+
+    Gson gson = new Gson();
+    Assert.assertEquals(gson.toJson(ranges), rangesJson.toString());
+  }
+
+  @Test
+  public void writesEventsInTheShapeThePageExpects() throws IOException {
+    Event event = new Event("Lunch", TimeRange.fromStartDuration(720, 60), Arrays.asList("Ava"));
+
+    StringWriter eventsJson = new StringWriter();
+    JsonCodec.writeEvents(new JsonWriter(eventsJson), Arrays.asList(event));
+
+    Assert.assertEquals(
+        "[{\"title\":\"Lunch\",\"when\":{\"start\":720,\"duration\":60},\"attendees\":[\"Ava\"]}]",
+        eventsJson.toString());
+  }
+
+  @Test
+  public void etagMatching() {
+    String etag = GetEventsServlet.strongEtag(new byte[] {1, 2, 3});
+
+    Assert.assertTrue(GetEventsServlet.matches(etag, etag));
+    Assert.assertTrue(GetEventsServlet.matches("\"other\", W/" + etag, etag));
+    Assert.assertTrue(GetEventsServlet.matches("*", etag));
+    Assert.assertFalse(GetEventsServlet.matches("\"other\"", etag));
+    Assert.assertFalse(GetEventsServlet.matches(null, etag));
+    Assert.assertNotEquals(etag, GetEventsServlet.strongEtag(new byte[] {1, 2, 4}));
+  }
+}